@@ -0,0 +1,126 @@
+package br.com.smartsy.fwj.persistence.metadata;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.smartsys.fwj.annotation.Encrypt;
+
+/**
+ * Overhead of resolving the annotated properties of an entity on save: the reflective walk done per save before
+ * {@link EntityMetadata}, against the cached accessors
+ * <p>Both read and write back every {@link Encrypt}, {@link Id} and {@link Version} property, without encrypting
+ * @author Vagner
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityMetadataBenchmark {
+
+	private final Account account = new Account();
+
+	@Benchmark
+	public Object reflection() throws Exception {
+		for (Method method : account.getClass().getMethods()) {
+			if (method.getAnnotation(Encrypt.class) != null || method.getAnnotation(Id.class) != null
+					|| method.getAnnotation(Version.class) != null) {
+				Method setter = account.getClass().getMethod(method.getName().replace("get", "set"), method.getReturnType());
+				setter.invoke(account, method.invoke(account));
+			}
+		}
+		return account;
+	}
+
+	@Benchmark
+	public Object metadata() {
+		EntityMetadata metadata = EntityMetadata.of(account.getClass());
+		for (PropertyAccessor property : metadata.getEncryptedProperties())
+			property.set(account, property.get(account));
+		for (PropertyAccessor property : metadata.getIdProperties())
+			property.set(account, property.get(account));
+		for (PropertyAccessor property : metadata.getVersionProperties())
+			property.set(account, property.get(account));
+		return account;
+	}
+
+	/**
+	 * Entity with the usual mix of plain and annotated properties
+	 */
+	public static class Account {
+		private Long id = 1L;
+		private Integer version = 1;
+		private String name = "name";
+		private String email = "name@mail.com";
+		private String password = "5f4dcc3b5aa765d61d8327deb882cf99";
+		private String secret = "5ebe2294ecd0e0f08eab7690d2a6ee69";
+
+		@Id
+		public Long getId() {
+			return id;
+		}
+
+		public void setId(Long id) {
+			this.id = id;
+		}
+
+		@Version
+		public Integer getVersion() {
+			return version;
+		}
+
+		public void setVersion(Integer version) {
+			this.version = version;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getEmail() {
+			return email;
+		}
+
+		public void setEmail(String email) {
+			this.email = email;
+		}
+
+		@Encrypt
+		public String getPassword() {
+			return password;
+		}
+
+		public void setPassword(String password) {
+			this.password = password;
+		}
+
+		@Encrypt
+		public String getSecret() {
+			return secret;
+		}
+
+		public void setSecret(String secret) {
+			this.secret = secret;
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package br.com.smartsy.fwj.security;
+
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link Encrypter} per {@link Algorithm}, against the digest and hex encoding created per value
+ * before it was shared
+ * @author Vagner
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class EncrypterBenchmark {
+
+	@Param({ "MD5", "SHA1", "SHA256", "SHA512" })
+	private Algorithm algorithm;
+
+	private final String value = "user@mail.com:5f4dcc3b5aa765d61d8327deb882cf99";
+
+	@Benchmark
+	public String shared() throws Exception {
+		return Encrypter.getInstance(algorithm).encrypt(value);
+	}
+
+	@Benchmark
+	public String perValue() throws Exception {
+		MessageDigest digest = MessageDigest.getInstance(algorithm.algorithm());
+		digest.update(value.getBytes());
+		byte info[] = digest.digest();
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < info.length; i++)
+			sb.append(Integer.toString((info[i] & 0xff) + 0x100, 16).substring(1));
+		return sb.toString();
+	}
+
+}
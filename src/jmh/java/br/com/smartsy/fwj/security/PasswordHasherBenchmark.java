@@ -0,0 +1,55 @@
+package br.com.smartsy.fwj.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of hashing and verifying a password per {@link PasswordAlgorithm}, with the default parameters of
+ * {@link PasswordHasher}
+ * @author Vagner
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHasherBenchmark {
+
+	@Param({ "PBKDF2_SHA1", "PBKDF2_SHA256", "PBKDF2_SHA512" })
+	private PasswordAlgorithm algorithm;
+
+	private final char[] password = "correct horse battery staple".toCharArray();
+	private PasswordHasher hasher;
+	private String stored;
+
+	@Setup
+	public void setup() throws Exception {
+		hasher = new PasswordHasher(algorithm, PasswordHasher.DEFAULT_ITERATIONS, PasswordHasher.DEFAULT_SALT_LENGTH,
+				PasswordHasher.DEFAULT_KEY_LENGTH);
+		stored = hasher.hash(password);
+	}
+
+	@Benchmark
+	public String hash() throws Exception {
+		return hasher.hash(password);
+	}
+
+	@Benchmark
+	public boolean verify() throws Exception {
+		return hasher.verify(password, stored);
+	}
+
+}
@@ -0,0 +1,73 @@
+package br.com.smartsy.fwj.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.smartsy.fwj.util.PatternRegistry;
+
+/**
+ * Throughput of the token validation and generation, against the pattern compiled on every validation
+ * ({@link String#matches(String)}) before the {@link PatternRegistry}
+ * @author Vagner
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TokenBenchmark {
+
+	private final TokenGenerator uuid = new UUIDTokenGenerator();
+	private final TokenGenerator secure = new SecureTokenGenerator();
+	private final String uuidValue = uuid.generate().getValue();
+	private final String secureValue = secure.generate().getValue();
+
+	@Benchmark
+	public boolean validateUUID() {
+		return uuid.isValid(uuidValue);
+	}
+
+	@Benchmark
+	public boolean validateUUIDLegacy() {
+		return uuidValue.matches(uuid.getPattern());
+	}
+
+	@Benchmark
+	public boolean validateSecure() {
+		return secure.isValid(secureValue);
+	}
+
+	@Benchmark
+	public boolean validateSecureRegistry() {
+		return PatternRegistry.matches(secure.getPattern(), secureValue);
+	}
+
+	@Benchmark
+	public boolean validateSecureLegacy() {
+		return secureValue.matches(secure.getPattern());
+	}
+
+	@Benchmark
+	public Token generateUUID() {
+		return uuid.generate();
+	}
+
+	@Benchmark
+	public Token generateSecure() {
+		return secure.generate();
+	}
+
+}
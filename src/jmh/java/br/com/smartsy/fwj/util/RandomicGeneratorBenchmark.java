@@ -0,0 +1,94 @@
+package br.com.smartsy.fwj.util;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of {@link RandomicGenerator}, single and bulk, against the {@link Random} created per secret and the
+ * retry loop placing the required characters before it was reworked
+ * @author Vagner
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class RandomicGeneratorBenchmark {
+
+	private static final int BULK = 100;
+
+	private static final String ALPHA_CAPS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final String ALPHA = "abcdefghijklmnopqrstuvwxyz";
+	private static final String NUM = "0123456789";
+	private static final String SPL_CHARS = "!@#$%^&*_=+-/";
+
+	private final RandomicGenerator generator = new RandomicGenerator(12, 16, 4, 4, 2);
+
+	@Benchmark
+	public String single() {
+		return generator.generate();
+	}
+
+	@Benchmark
+	public List<String> bulk() {
+		return generator.generate(BULK);
+	}
+
+	@Benchmark
+	public String legacy() {
+		return legacy(12, 16, 4, 4, 2);
+	}
+
+	@Benchmark
+	public void legacyBulk(Blackhole blackhole) {
+		for (int i = 0; i < BULK; i++)
+			blackhole.consume(legacy(12, 16, 4, 4, 2));
+	}
+
+	private static String legacy(int minLen, int maxLen, int noOfCAPSAlpha, int noOfDigits, int noOfSplChars) {
+		Random rnd = new Random();
+		int len = rnd.nextInt(maxLen - minLen + 1) + minLen;
+		char[] pswd = new char[len];
+		int index = 0;
+		for (int i = 0; i < noOfCAPSAlpha; i++) {
+			index = getNextIndex(rnd, len, pswd);
+			pswd[index] = ALPHA_CAPS.charAt(rnd.nextInt(ALPHA_CAPS.length()));
+		}
+		for (int i = 0; i < noOfDigits; i++) {
+			index = getNextIndex(rnd, len, pswd);
+			pswd[index] = NUM.charAt(rnd.nextInt(NUM.length()));
+		}
+		for (int i = 0; i < noOfSplChars; i++) {
+			index = getNextIndex(rnd, len, pswd);
+			pswd[index] = SPL_CHARS.charAt(rnd.nextInt(SPL_CHARS.length()));
+		}
+		for (int i = 0; i < len; i++) {
+			if (pswd[i] == 0)
+				pswd[i] = ALPHA.charAt(rnd.nextInt(ALPHA.length()));
+		}
+		return new String(pswd);
+	}
+
+	private static int getNextIndex(Random rnd, int len, char[] pswd) {
+		int index;
+		while (pswd[index = rnd.nextInt(len)] != 0);
+		return index;
+	}
+
+}
@@ -0,0 +1,101 @@
+package br.com.smartsy.fwj.bean.render;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+import br.com.smartsy.fwj.util.HexUtil;
+
+/**
+ * A generated {@link Schema} with its validators for HTTP revalidation
+ * @author Vagner
+ *
+ */
+public final class CachedSchema {
+
+	private static final Logger log = Logger.getLogger(CachedSchema.class);
+
+	/**
+	 * Builds a serialized representation of the schema
+	 */
+	public interface Serializer {
+		byte[] serialize(Schema schema) throws IOException;
+	}
+
+	private final Schema schema;
+	private final String entityTag;
+	private final long lastModified;
+	private final ConcurrentMap<String, byte[]> representations = new ConcurrentHashMap<>();
+
+	CachedSchema(Schema schema) {
+		this.schema = schema;
+		//HTTP dates have seconds precision
+		this.lastModified = System.currentTimeMillis() / 1000 * 1000;
+		this.entityTag = digest(schema, lastModified);
+	}
+
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Gets the entity tag, based on the schema content so it's the same across restarts and nodes
+	 * @return Entity tag value(unquoted)
+	 */
+	public String getEntityTag() {
+		return entityTag;
+	}
+
+	/**
+	 * @return When the schema was generated
+	 */
+	public Date getLastModified() {
+		return new Date(lastModified);
+	}
+
+	/**
+	 * Gets a serialized representation of the schema, serializing it only on the first call
+	 * <p>The returned array is shared and must not be changed
+	 * @param key - Identifies the representation(e.g: media type and encoding)
+	 * @param serializer - Serializes the schema on the first call
+	 * @return The representation bytes
+	 * @throws IOException - If the schema couldn't be serialized
+	 */
+	public byte[] getRepresentation(String key, Serializer serializer) throws IOException {
+		byte[] bytes = representations.get(key);
+		if (bytes == null) {
+			bytes = serializer.serialize(schema);
+			byte[] existent = representations.putIfAbsent(key, bytes);
+			if (existent != null)
+				bytes = existent;
+		}
+		return bytes;
+	}
+
+	private static String digest(Schema schema, long lastModified) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(schema);
+		}
+		catch (IOException e) {
+			log.warn("Couldn't serialize the schema of '" + schema.getEntity() + "', using its generation time as entity tag: " + e.getMessage());
+			return Long.toHexString(lastModified);
+		}
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray());
+			return HexUtil.encode(Arrays.copyOf(hash, 16));
+		}
+		catch (NoSuchAlgorithmException e) {
+			return Integer.toHexString(Arrays.hashCode(bytes.toByteArray()));
+		}
+	}
+
+}
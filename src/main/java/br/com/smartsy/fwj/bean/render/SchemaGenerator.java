@@ -6,7 +6,12 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.persistence.Column;
 import javax.xml.bind.annotation.XmlTransient;
@@ -17,32 +22,70 @@ import br.com.smartsy.fwj.util.StringUtil;
 
 /**
  * Utility class for schema generation by reflection
+ * <p>Schemas are generated once per class and cached, as they only change between deploys. Each cached schema
+ * has a content based entity tag and a last modified date, so clients can revalidate it
+ * <p><b>Warning:</b> Cached schemas are shared, they must not be changed by the callers
  * @author Vagner
  *
  */
 public class SchemaGenerator {
 	
-	private static SchemaGenerator instance;
 	private static final String JAVA_PKG_PREFIX = "java";
 	
+	private final ConcurrentMap<Class<?>, CachedSchema> schemas = new ConcurrentHashMap<>();
+	
+	private SchemaGenerator(){
+	}
+	
+	private static class InstanceHolder {
+		private static final SchemaGenerator INSTANCE = new SchemaGenerator();
+	}
+	
 	/**
 	 * Get SchemaGenerator instance
 	 * @return
 	 */
 	public static SchemaGenerator getInstance(){
-		if(instance == null)
-			instance = new SchemaGenerator();
-		return instance;
+		return InstanceHolder.INSTANCE;
 	}
 	
 	/**
-	 * This method generates a schema based on class instance
+	 * This method generates a schema based on class instance, or gets it from cache
 	 * OBS: It requires the instance in order to provide the custom feature of {@link Schematic} interface
 	 * @param clazz - The class to be read
 	 * @return Schema
 	 */
 	public Schema generate(Class<?> clazz){
-		return generate(clazz, null);
+		return getCached(clazz).getSchema();
+	}
+	
+	/**
+	 * Gets the cached schema of the class, generating it on the first call
+	 * @param clazz - The class to be read
+	 * @return CachedSchema
+	 */
+	public CachedSchema getCached(Class<?> clazz){
+		if(clazz == null) throw new IllegalStateException("The class cannot be null");
+		CachedSchema cached = schemas.get(clazz);
+		if(cached == null)
+			cached = schemas.computeIfAbsent(clazz, type -> new CachedSchema(generate(type, null)));
+		return cached;
+	}
+	
+	/**
+	 * Generates the schemas ahead of the first requests(e.g: on startup)
+	 * @param classes
+	 */
+	public void preload(Class<?>... classes){
+		for(Class<?> clazz : classes)
+			getCached(clazz);
+	}
+	
+	/**
+	 * Clears the cached schemas
+	 */
+	public void clear(){
+		schemas.clear();
 	}
 	
 	/**
@@ -54,6 +97,17 @@ public class SchemaGenerator {
 	 */
 	public Schema generate(Class<?> clazz, Class<?> owner){
 		if(clazz == null) throw new IllegalStateException("The class cannot be null");
+		return generate(clazz, owner, Collections.newSetFromMap(new IdentityHashMap<Class<?>, Boolean>()));
+	}
+	
+	/**
+	 * Generates the schema, skipping the child schemas of the classes being generated
+	 * @param clazz - The class to be read
+	 * @param owner - The composition owner(some cases)
+	 * @param path - The classes being generated, from the root to the current one
+	 * @return Schema
+	 */
+	private Schema generate(Class<?> clazz, Class<?> owner, Set<Class<?>> path){
 		//If implements Schematic interface, then use the customization
 		if(Schematic.class.isAssignableFrom(clazz)){
 			try{
@@ -68,6 +122,8 @@ public class SchemaGenerator {
 		Schema schema = new Schema(clazz.getName());
 		schema.setEntityName(clazz.getSimpleName().toLowerCase());
 		schema.setCaption(genCaption(clazz.getSimpleName()));
+		Class<?> schemaClass = clazz;
+		path.add(schemaClass);
 		//Clazz scan
 		while(clazz.getSuperclass() != null){
 			//Breaks the iteration in case of java classes
@@ -89,7 +145,7 @@ public class SchemaGenerator {
 						Class<?> genericType = (Class<?>) generic.getActualTypeArguments()[0];
 						
 						//Recursively generate the child schema
-						property.setChildSchema(generate(genericType, null));
+						property.setChildSchema(generateChild(genericType, null, path));
 					}
 					//Array field
 					else if(type.isArray()){
@@ -97,7 +153,7 @@ public class SchemaGenerator {
 						Class<?> componentType = type.getComponentType();
 						
 						//Recursively generate the child schema
-						property.setChildSchema(generate(componentType, null));
+						property.setChildSchema(generateChild(componentType, null, path));
 					}
 				}
 				//Composed field
@@ -105,7 +161,7 @@ public class SchemaGenerator {
 					//Make sure that its a camposition
 					if(FieldType.getByField(field) == FieldType.COMPOSITION){
 						//Recursively generate the child schema
-						property.setChildSchema(generate(type, clazz));
+						property.setChildSchema(generateChild(type, clazz, path));
 					}
 				}
 				//Primitive and JavaLang fields will be filled here
@@ -118,9 +174,20 @@ public class SchemaGenerator {
 			}
 			clazz = clazz.getSuperclass();
 		}
+		path.remove(schemaClass);
 		return schema;
 	}
 	
+	/**
+	 * Generates the child schema, unless its class is already being generated(cyclic associations)
+	 * @return Schema, or null on cycles
+	 */
+	private Schema generateChild(Class<?> clazz, Class<?> owner, Set<Class<?>> path){
+		if(path.contains(clazz))
+			return null;
+		return generate(clazz, owner, path);
+	}
+	
 	/**
 	 * Fills the basic values of the property
 	 * @param property
@@ -153,16 +220,15 @@ public class SchemaGenerator {
 	 * @return
 	 */
 	public String genCaption(String value){
-		char[] chars = value.toCharArray();
-		String finalName = String.valueOf(chars[0]).toUpperCase();
-		for(int index = 1;index < chars.length;index++){
-			char c = chars[index];
+		StringBuilder finalName = new StringBuilder(value.length() + 8);
+		finalName.append(String.valueOf(value.charAt(0)).toUpperCase());
+		for(int index = 1;index < value.length();index++){
+			char c = value.charAt(index);
 			if(Character.isUpperCase(c))
-				finalName += (" " + String.valueOf(c));
-			else
-				finalName += String.valueOf(c);
+				finalName.append(' ');
+			finalName.append(c);
 		}
-		return finalName;
+		return finalName.toString();
 	}
 	
 	/**
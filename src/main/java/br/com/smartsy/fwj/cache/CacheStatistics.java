@@ -0,0 +1,82 @@
+package br.com.smartsy.fwj.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Usage counters of a {@link LruCache}
+ * @author Vagner
+ * @since 1.0
+ */
+public class CacheStatistics {
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+
+	void hit() {
+		hits.incrementAndGet();
+	}
+
+	void miss() {
+		misses.incrementAndGet();
+	}
+
+	void load() {
+		loads.incrementAndGet();
+	}
+
+	void evicted() {
+		evictions.incrementAndGet();
+	}
+
+	void expired() {
+		expirations.incrementAndGet();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Number of values actually loaded, concurrent misses of the same key count once
+	 */
+	public long getLoads() {
+		return loads.get();
+	}
+
+	/**
+	 * @return Number of entries removed to respect the maximum size
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return Number of entries removed because their time to live elapsed
+	 */
+	public long getExpirations() {
+		return expirations.get();
+	}
+
+	/**
+	 * @return Hits over requests, from 0 to 1
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long requests = hits + getMisses();
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + getHits() + ", misses=" + getMisses() + ", loads=" + getLoads() + ", evictions=" + getEvictions()
+				+ ", expirations=" + getExpirations();
+	}
+
+}
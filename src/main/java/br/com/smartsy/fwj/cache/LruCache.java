@@ -0,0 +1,289 @@
+package br.com.smartsy.fwj.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe, in-process cache bounded by size(least recently used eviction) and time to live
+ * <p>Concurrent misses of the same key are coalesced, so the value is loaded only once
+ * @author Vagner
+ * @since 1.0
+ *
+ * @param <K>
+ *            - The key type
+ * @param <V>
+ *            - The value type
+ */
+public class LruCache<K, V> {
+
+	/**
+	 * Loads a value missing on the cache
+	 */
+	public interface Loader<K, V> {
+		V load(K key) throws Exception;
+	}
+
+	private final int maxSize;
+	private final long ttl;
+	private final Map<K, Entry<V>> entries;
+	private final ConcurrentMap<K, FutureTask<V>> loads = new ConcurrentHashMap<>();
+	private final AtomicLong generation = new AtomicLong();
+	private final CacheStatistics statistics = new CacheStatistics();
+
+	/**
+	 * @param maxSize - Maximum number of entries
+	 * @param ttl - Time to live of each entry, zero or less to never expire
+	 * @param unit - The time to live unit
+	 */
+	public LruCache(int maxSize, long ttl, TimeUnit unit) {
+		if (maxSize < 1)
+			throw new IllegalArgumentException("The cache size must be greater than zero");
+		this.maxSize = maxSize;
+		this.ttl = ttl > 0 ? unit.toNanos(ttl) : 0;
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				if (size() > LruCache.this.maxSize) {
+					statistics.evicted();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public CacheStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Gets the cached value
+	 * @param key
+	 * @return The value, or null if absent or expired
+	 */
+	public V get(K key) {
+		V value = lookup(key);
+		if (value != null)
+			statistics.hit();
+		else
+			statistics.miss();
+		return value;
+	}
+
+	/**
+	 * Gets the cached value, loading it on a miss
+	 * <p>Only one caller loads a missing key, the concurrent ones wait for its result.
+	 * Null values and failures are not cached
+	 * @param key
+	 * @param loader - Loads the missing value
+	 * @return The value
+	 * @throws Exception - The loader failure
+	 */
+	public V get(K key, Loader<K, V> loader) throws Exception {
+		return load(key, loader, ttl);
+	}
+
+	/**
+	 * Gets the cached value, loading it on a miss and storing it with a specific time to live
+	 * @param key
+	 * @param loader - Loads the missing value
+	 * @param ttl - Time to live of the loaded entry, zero or less to never expire
+	 * @param unit - The time to live unit
+	 * @return The value
+	 * @throws Exception - The loader failure
+	 * @see #get(Object, Loader)
+	 */
+	public V get(K key, Loader<K, V> loader, long ttl, TimeUnit unit) throws Exception {
+		return load(key, loader, ttl > 0 ? unit.toNanos(ttl) : 0);
+	}
+
+	private V load(final K key, final Loader<K, V> loader, long ttl) throws Exception {
+		V value = get(key);
+		if (value != null)
+			return value;
+		FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				return loader.load(key);
+			}
+		});
+		FutureTask<V> running = loads.putIfAbsent(key, task);
+		if (running == null) {
+			running = task;
+			long current = generation.get();
+			try {
+				statistics.load();
+				task.run();
+				V loaded = task.get();
+				//A value invalidated while loading may already be stale
+				if (loaded != null && current == generation.get())
+					store(key, loaded, ttl);
+			}
+			catch (ExecutionException e) {
+				// Rethrown below
+			}
+			finally {
+				loads.remove(key, task);
+			}
+		}
+		try {
+			return running.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			throw (Error) cause;
+		}
+	}
+
+	/**
+	 * Stores the value
+	 * @param key
+	 * @param value
+	 */
+	public void put(K key, V value) {
+		store(key, value, ttl);
+	}
+
+	/**
+	 * Stores the value with a specific time to live
+	 * @param key
+	 * @param value
+	 * @param ttl - Time to live of the entry, zero or less to never expire
+	 * @param unit - The time to live unit
+	 */
+	public void put(K key, V value, long ttl, TimeUnit unit) {
+		store(key, value, ttl > 0 ? unit.toNanos(ttl) : 0);
+	}
+
+	private void store(K key, V value, long ttl) {
+		if (key == null || value == null)
+			return;
+		synchronized (entries) {
+			entries.put(key, new Entry<V>(value, ttl > 0 ? System.nanoTime() + ttl : 0));
+		}
+	}
+
+	/**
+	 * Removes the key
+	 * @param key
+	 */
+	public void invalidate(K key) {
+		generation.incrementAndGet();
+		synchronized (entries) {
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * Removes the keys matching the filter
+	 * @param filter
+	 */
+	public void invalidateIf(Predicate<? super K> filter) {
+		generation.incrementAndGet();
+		synchronized (entries) {
+			entries.keySet().removeIf(filter);
+		}
+	}
+
+	/**
+	 * Removes every entry
+	 */
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Removes the expired entries
+	 */
+	public void purge() {
+		if (ttl <= 0)
+			return;
+		long now = System.nanoTime();
+		synchronized (entries) {
+			for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext();) {
+				if (it.next().isExpired(now)) {
+					it.remove();
+					statistics.expired();
+				}
+			}
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Gets a snapshot of the values not expired, without touching their recency
+	 * @return The values
+	 */
+	public List<V> values() {
+		long now = System.nanoTime();
+		List<V> values = new ArrayList<>();
+		synchronized (entries) {
+			for (Entry<V> entry : entries.values())
+				if (!entry.isExpired(now))
+					values.add(entry.value);
+		}
+		return values;
+	}
+
+	private V lookup(K key) {
+		if (key == null)
+			return null;
+		synchronized (entries) {
+			Entry<V> entry = entries.get(key);
+			if (entry == null)
+				return null;
+			if (entry.isExpired(System.nanoTime())) {
+				entries.remove(key);
+				statistics.expired();
+				return null;
+			}
+			return entry.value;
+		}
+	}
+
+	private static class Entry<V> {
+		private final V value;
+		private final long expiresAt;
+
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+			return expiresAt != 0 && now - expiresAt >= 0;
+		}
+	}
+
+}
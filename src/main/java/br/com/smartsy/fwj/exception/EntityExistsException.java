@@ -10,6 +10,8 @@ public class EntityExistsException extends Exception{
 
 	private static final long serialVersionUID = 1L;
 	
+	private final int failedIndex;
+	
 	public EntityExistsException() {
 		this(null);
 	}
@@ -19,7 +21,20 @@ public class EntityExistsException extends Exception{
 	}
 	
 	public EntityExistsException(String msg, Throwable cause) {
+		this(msg,cause,-1);
+	}
+	
+	public EntityExistsException(String msg, Throwable cause, int failedIndex) {
 		super(msg,cause);
+		this.failedIndex = failedIndex;
+	}
+	
+	/**
+	 * Index of the entity that violated the constraint on batch writes
+	 * @return The index, or -1 if unknown
+	 */
+	public int getFailedIndex() {
+		return failedIndex;
 	}
 	
 }
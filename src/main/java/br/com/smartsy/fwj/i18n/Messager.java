@@ -1,39 +1,191 @@
 package br.com.smartsy.fwj.i18n;
 
+import java.text.MessageFormat;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import br.com.smartsy.fwj.exception.MessagerInitializationException;
 
 /**
  * Util class for retrieving messages from a multi language resource bundle
  * archive
- * 
+ * <p>
+ * Bundles are loaded once per locale and parameterized messages are compiled
+ * once per locale and key, so a lookup costs a couple of map hits. Up to
+ * {@link #MAX_LOCALES} requested locales are cached, the other ones are
+ * resolved on every lookup
+ *
  * @author Vagner
- * 
+ *
  */
 public final class Messager {
 	/**
-	 * The resource bundle of messages
+	 * Maximum number of requested locales cached, as they may come from the
+	 * clients(e.g: Accept-Language)
+	 */
+	public static final int MAX_LOCALES = 64;
+
+	/**
+	 * The base name of the resource bundles
+	 */
+	private final String baseName;
+
+	/**
+	 * The locale of the messages without one
+	 */
+	private final Locale defaultLocale;
+
+	/**
+	 * The resource bundle of messages, per locale
+	 */
+	private final ConcurrentMap<Locale, ResourceBundle> bundles = new ConcurrentHashMap<>();
+
+	/**
+	 * The compiled messages, per locale and key
 	 */
-	private final ResourceBundle bundle;
+	private final ConcurrentMap<Locale, ConcurrentMap<String, MessageFormat>> formats = new ConcurrentHashMap<>();
 
 	/**
 	 * Constructs a {@link Messager} with a base name of {@link ResourceBundle}
 	 * for retrieving messages
-	 * 
+	 *
 	 * @param baseName
 	 *            - The base name of the I18n messages
+	 * @throws MessagerInitializationException
+	 *             - If there is no bundle for the base name
 	 */
 	public Messager(String baseName) {
-		bundle = ResourceBundle.getBundle(baseName);
+		this.baseName = baseName;
+		this.defaultLocale = Locale.getDefault();
+		getBundle(defaultLocale);
+	}
+
+	/**
+	 * Constructs a {@link Messager}, loading and compiling every message of
+	 * the locales at once
+	 *
+	 * @param baseName
+	 *            - The base name of the I18n messages
+	 * @param locales
+	 *            - The locales to be preloaded
+	 * @throws MessagerInitializationException
+	 *             - If there is no bundle for the base name
+	 * @see #preload(Locale...)
+	 */
+	public Messager(String baseName, Locale... locales) {
+		this(baseName);
+		preload(locales);
 	}
 
 	/**
 	 * Retrieves a message from the resource bundle
-	 * 
+	 *
 	 * @param key
 	 *            - The key to the message
 	 * @return Message
 	 */
 	public String getMessage(String key) {
-		return bundle.getString(key);
+		return getBundle(defaultLocale).getString(key);
+	}
+
+	/**
+	 * Retrieves a message from the resource bundle of the default locale,
+	 * formatted with the arguments
+	 *
+	 * @param key
+	 *            - The key to the message
+	 * @param args
+	 *            - The message arguments, see {@link MessageFormat}
+	 * @return Message
+	 */
+	public String getMessage(String key, Object... args) {
+		return getMessage(key, defaultLocale, args);
+	}
+
+	/**
+	 * Retrieves a message from the resource bundle of the locale, formatted
+	 * with the arguments
+	 *
+	 * @param key
+	 *            - The key to the message
+	 * @param locale
+	 *            - The message locale, or null for the default one
+	 * @param args
+	 *            - The message arguments, see {@link MessageFormat}
+	 * @return Message
+	 * @throws MissingResourceException
+	 *             - If there is no message for the key
+	 */
+	public String getMessage(String key, Locale locale, Object... args) {
+		Locale target = locale != null ? locale : defaultLocale;
+		if (args == null || args.length == 0)
+			return getBundle(target).getString(key);
+		MessageFormat format = getFormat(key, target);
+		// MessageFormat is not thread-safe
+		synchronized (format) {
+			return format.format(args);
+		}
+	}
+
+	/**
+	 * Loads the bundles of the locales and compiles all their messages, so
+	 * the first requests don't pay for it
+	 *
+	 * @param locales
+	 *            - The locales to be preloaded, the default one is always
+	 *            included
+	 */
+	public void preload(Locale... locales) {
+		preloadLocale(defaultLocale);
+		for (Locale locale : locales)
+			preloadLocale(locale);
+	}
+
+	/**
+	 * @return The base name of the I18n messages
+	 */
+	public String getBaseName() {
+		return baseName;
+	}
+
+	private void preloadLocale(Locale locale) {
+		ResourceBundle bundle = getBundle(locale);
+		for (Enumeration<String> keys = bundle.getKeys(); keys.hasMoreElements();) {
+			try {
+				getFormat(keys.nextElement(), locale);
+			} catch (IllegalArgumentException e) {
+				// Not a valid pattern, it can still be read without arguments
+			}
+		}
+	}
+
+	private MessageFormat getFormat(String key, Locale locale) {
+		ConcurrentMap<String, MessageFormat> compiled = formats.get(locale);
+		if (compiled == null) {
+			if (formats.size() >= MAX_LOCALES)
+				return new MessageFormat(getBundle(locale).getString(key), locale);
+			compiled = formats.computeIfAbsent(locale, l -> new ConcurrentHashMap<>());
+		}
+		MessageFormat format = compiled.get(key);
+		if (format == null)
+			format = compiled.computeIfAbsent(key, k -> new MessageFormat(getBundle(locale).getString(k), locale));
+		return format;
+	}
+
+	private ResourceBundle getBundle(Locale locale) {
+		ResourceBundle bundle = bundles.get(locale);
+		if (bundle != null)
+			return bundle;
+		try {
+			if (bundles.size() >= MAX_LOCALES)
+				return ResourceBundle.getBundle(baseName, locale);
+			return bundles.computeIfAbsent(locale, l -> ResourceBundle.getBundle(baseName, l));
+		} catch (MissingResourceException e) {
+			throw new MessagerInitializationException("Couldn't load the messages '" + baseName + "' for the locale '" + locale + "'", e);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,383 @@
+package br.com.smartsy.fwj.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.log4j.Logger;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import br.com.smartsy.fwj.util.NamedThreadFactory;
+
+/**
+ * Long-lived, asynchronous mail dispatcher
+ * <p>Each {@link SmtpAccount} has its own worker pool, sized by {@link SmtpAccount#getPoolSize()}, and bounded queue.
+ * Messages are sent in background and tracked by the returned futures. Transient failures are retried with
+ * exponential backoff, while invalid messages, refused recipients and authentication failures fail at once.
+ * <p>Messages are sent through kept-alive connections of the account, see {@link SmtpTransportPool}
+ * <p>Subclasses may override {@link #createSender(SmtpAccount)}, e.g: to point the accounts to a local SMTP stand-in
+ * <p><b>Warning:</b>In order to use it, Spring Context Support must be on classpath
+ * @author Vagner
+ *
+ */
+public class MailDispatcher {
+
+	private static final Logger log = Logger.getLogger(MailDispatcher.class);
+
+	/**
+	 * Default maximum number of messages waiting per account
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+	/**
+	 * Default number of attempts per message
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/**
+	 * Default delay before the first retry, in seconds. Doubled on each new attempt
+	 */
+	public static final long DEFAULT_BACKOFF = 2;
+
+	/**
+	 * Connection and read timeout of the default senders, in milliseconds
+	 */
+	public static final int SMTP_TIMEOUT = 10000;
+
+	private final int queueCapacity;
+	private final int maxAttempts;
+	private final long backoff;
+	private final ConcurrentMap<String, AccountPool> pools = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("mail-retry"));
+	private final Set<Delivery> pendingRetries = ConcurrentHashMap.newKeySet();
+	private final MailStatistics statistics = new MailStatistics();
+	private volatile boolean shutdown;
+
+	public MailDispatcher() {
+		this(DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param queueCapacity - Maximum number of messages waiting per account
+	 * @param maxAttempts - Number of attempts per message
+	 * @param backoff - Delay before the first retry, doubled on each new attempt
+	 * @param unit - The backoff unit
+	 */
+	public MailDispatcher(int queueCapacity, int maxAttempts, long backoff, TimeUnit unit) {
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("The queue capacity must be greater than zero");
+		if (maxAttempts < 1)
+			throw new IllegalArgumentException("The number of attempts must be greater than zero");
+		this.queueCapacity = queueCapacity;
+		this.maxAttempts = maxAttempts;
+		this.backoff = unit.toNanos(Math.max(backoff, 0));
+	}
+
+	private static class InstanceHolder {
+		private static final MailDispatcher INSTANCE = new MailDispatcher();
+	}
+
+	/**
+	 * Gets the shared dispatcher, with the default settings
+	 * @return MailDispatcher
+	 */
+	public static MailDispatcher getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Sends the messages through an already configured sender instead of the one built by {@link #createSender(SmtpAccount)}
+	 * <p>A different sender(e.g: new credentials) replaces the account pool: the messages already queued are still
+	 * sent through the previous one, which is shut down afterwards, and the pending retries move to the new one
+	 * @param account
+	 * @param sender
+	 */
+	public void register(SmtpAccount account, JavaMailSenderImpl sender) {
+		AccountPool[] replaced = new AccountPool[1];
+		pools.compute(account.getKey(), (key, current) -> {
+			if (current != null && current.sender == sender)
+				return current;
+			replaced[0] = current;
+			return new AccountPool(account, sender);
+		});
+		if (replaced[0] != null) {
+			log.info("MAIL>Sender of '" + account.getKey() + "' replaced");
+			replaced[0].executor.shutdown();
+		}
+	}
+
+	/**
+	 * Queues the message to be sent through the account
+	 * @param account - The sender account
+	 * @param message - The message
+	 * @return Completed when the message is sent, or exceptionally when rejected or given up
+	 */
+	public CompletableFuture<Void> send(SmtpAccount account, Message message) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		if (shutdown) {
+			statistics.rejected();
+			future.completeExceptionally(new RejectedExecutionException("The mail dispatcher is shut down"));
+			return future;
+		}
+		AccountPool pool = pools.computeIfAbsent(account.getKey(), key -> new AccountPool(account, createSender(account)));
+		statistics.queued();
+		submit(new Delivery(pool, message, future));
+		return future;
+	}
+
+	/**
+	 * Queues several messages to be sent through the account
+	 * @param account - The sender account
+	 * @param messages - The messages
+	 * @return One future per message
+	 * @see #send(SmtpAccount, Message)
+	 */
+	public List<CompletableFuture<Void>> send(SmtpAccount account, Message... messages) {
+		List<CompletableFuture<Void>> futures = new ArrayList<>(messages.length);
+		for (Message message : messages)
+			futures.add(send(account, message));
+		return futures;
+	}
+
+	/**
+	 * Queues the pending messages of the mailing
+	 * @param mailing
+	 * @return One future per message
+	 * @see #send(SmtpAccount, Message)
+	 */
+	public List<CompletableFuture<Void>> send(Mailing mailing) {
+		return send(mailing.getSender(), mailing.getMessages().toArray(new Message[0]));
+	}
+
+	/**
+	 * Queues the pending messages of every mailing, the ones of the same account share its connections
+	 * @param mailings
+	 * @return One future per message
+	 * @see #send(SmtpAccount, Message)
+	 */
+	public List<CompletableFuture<Void>> send(MailingMap mailings) {
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (Mailing mailing : mailings.values())
+			futures.addAll(send(mailing));
+		return futures;
+	}
+
+	public MailStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return Number of messages waiting for a worker or a retry, on every account
+	 */
+	public int getQueueDepth() {
+		int depth = pendingRetries.size();
+		for (AccountPool pool : pools.values())
+			depth += pool.executor.getQueue().size();
+		return depth;
+	}
+
+	/**
+	 * Stops accepting messages and waits the queued ones to be sent
+	 * <p>Pending retries are given up and the kept-alive connections closed
+	 * @param timeout - Maximum time to wait
+	 * @param unit - The timeout unit
+	 * @return True if every queued message was handled in time
+	 * @throws InterruptedException
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		shutdown = true;
+		retries.shutdownNow();
+		for (Delivery delivery : pendingRetries)
+			if (pendingRetries.remove(delivery))
+				fail(delivery, new RejectedExecutionException("The mail dispatcher is shut down"));
+		for (AccountPool pool : pools.values())
+			pool.executor.shutdown();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean terminated = true;
+		for (AccountPool pool : pools.values()) {
+			terminated &= pool.executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			pool.transports.close();
+		}
+		return terminated;
+	}
+
+	/**
+	 * Builds the sender of the account
+	 * @param account
+	 * @return JavaMailSenderImpl
+	 */
+	protected JavaMailSenderImpl createSender(SmtpAccount account) {
+		JavaMailSenderImpl sender = new JavaMailSenderImpl();
+		sender.setHost(account.getHost());
+		sender.setPort(account.getPort());
+		sender.setUsername(account.getUsername());
+		sender.setPassword(account.getPassword());
+		sender.setDefaultEncoding("UTF-8");
+		Properties properties = new Properties();
+		properties.setProperty("mail.smtp.auth", String.valueOf(account.getPassword() != null));
+		properties.setProperty("mail.smtp.connectiontimeout", String.valueOf(SMTP_TIMEOUT));
+		properties.setProperty("mail.smtp.timeout", String.valueOf(SMTP_TIMEOUT));
+		sender.setJavaMailProperties(properties);
+		return sender;
+	}
+
+	/**
+	 * Builds the MIME message, from the sender username
+	 * @param sender
+	 * @param message
+	 * @return MimeMessage
+	 * @throws MessagingException - If the message is invalid
+	 */
+	static MimeMessage prepareMessage(JavaMailSenderImpl sender, Message message) throws MessagingException {
+		MimeMessage mime = sender.createMimeMessage();
+		MimeMessageHelper helper = new MimeMessageHelper(mime, true, "UTF-8");
+		helper.setSubject(message.getSubject());
+		helper.setText(message.getBody(), true);
+		helper.setFrom(sender.getUsername());
+		helper.setTo(message.getDestinatariesAdresses().toArray(new String[0]));
+		helper.setCc(message.getCopiesAdresses().toArray(new String[0]));
+		return mime;
+	}
+
+	private void submit(Delivery delivery) {
+		try {
+			delivery.pool.executor.execute(delivery);
+		}
+		catch (RejectedExecutionException e) {
+			AccountPool current = pools.get(delivery.pool.key);
+			if (!shutdown && current != null && current != delivery.pool) {
+				// Replaced while being queued
+				delivery.moveTo(current);
+				submit(delivery);
+				return;
+			}
+			statistics.rejected();
+			delivery.future.completeExceptionally(e);
+		}
+	}
+
+	private void retry(final Delivery delivery, Exception cause) {
+		long delay = backoff << Math.min(delivery.attempts - 1, 20);
+		log.warn("MAIL>Attempt " + delivery.attempts + " of '" + delivery.message.getSubject() + "' failed, retrying in "
+				+ TimeUnit.NANOSECONDS.toMillis(delay) + "ms: " + cause.getMessage());
+		try {
+			pendingRetries.add(delivery);
+			retries.schedule(() -> {
+				if (pendingRetries.remove(delivery)) {
+					delivery.moveTo(pools.get(delivery.pool.key));
+					submit(delivery);
+				}
+			}, delay, TimeUnit.NANOSECONDS);
+			statistics.retried();
+		}
+		catch (RejectedExecutionException e) {
+			if (pendingRetries.remove(delivery))
+				fail(delivery, cause);
+		}
+	}
+
+	private void fail(Delivery delivery, Exception cause) {
+		log.error("MAIL>Could not send '" + delivery.message.getSubject() + "' after " + delivery.attempts + " attempt(s): " + cause.getMessage());
+		statistics.failed();
+		delivery.future.completeExceptionally(cause);
+	}
+
+	/**
+	 * Workers and queue of an account
+	 * <p>The kept-alive connections are closed once the workers terminate
+	 */
+	private class AccountPool {
+		private final String key;
+		private final JavaMailSenderImpl sender;
+		private final ThreadPoolExecutor executor;
+		private final SmtpTransportPool transports;
+
+		private AccountPool(SmtpAccount account, JavaMailSenderImpl sender) {
+			this.key = account.getKey();
+			this.sender = sender;
+			this.transports = new SmtpTransportPool(sender, account.getPoolSize(), account.getMaxMessagesPerConnection(), statistics);
+			this.executor = new ThreadPoolExecutor(account.getPoolSize(), account.getPoolSize(), 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(queueCapacity), new NamedThreadFactory("mail-" + account.getHost())) {
+				@Override
+				protected void terminated() {
+					transports.close();
+				}
+			};
+			this.executor.allowCoreThreadTimeOut(true);
+		}
+	}
+
+	/**
+	 * A message being delivered, resubmitted on each retry
+	 */
+	private class Delivery implements Runnable {
+		private AccountPool pool;
+		private final Message message;
+		private final CompletableFuture<Void> future;
+		private final long queuedAt = System.nanoTime();
+		private MimeMessage mime;
+		private int attempts;
+
+		private Delivery(AccountPool pool, Message message, CompletableFuture<Void> future) {
+			this.pool = pool;
+			this.message = message;
+			this.future = future;
+		}
+
+		/**
+		 * Moves the retry to the current pool of the account, if it was replaced
+		 */
+		private void moveTo(AccountPool current) {
+			if (current != null && current != pool) {
+				pool = current;
+				mime = null;
+			}
+		}
+
+		@Override
+		public void run() {
+			if (future.isCancelled())
+				return;
+			attempts++;
+			try {
+				if (mime == null)
+					mime = prepareMessage(pool.sender, message);
+			}
+			catch (Exception e) {
+				fail(this, e);
+				return;
+			}
+			try {
+				pool.transports.send(mime);
+				statistics.sent(System.nanoTime() - queuedAt);
+				future.complete(null);
+			}
+			catch (AuthenticationFailedException | SendFailedException e) {
+				fail(this, e);
+			}
+			catch (Exception e) {
+				if (attempts < maxAttempts && !shutdown)
+					retry(this, e);
+				else
+					fail(this, e);
+			}
+		}
+	}
+
+}
@@ -1,20 +1,20 @@
 package br.com.smartsy.fwj.mail;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
 import org.apache.log4j.Logger;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
-import org.springframework.mail.javamail.MimeMessageHelper;
+
+import br.com.smartsy.fwj.util.NamedThreadFactory;
 
 /**
  * Class designed to send email messages
@@ -30,95 +30,82 @@ public class MailOutput {
 	private static final Logger log = Logger.getLogger(MailOutput.class);
 
 	private JavaMailSenderImpl sender;
+	private SmtpAccount account;
+	private MailDispatcher dispatcher;
 
 	public MailOutput(JavaMailSenderImpl sender) {
-		this.sender = sender;
+		this(sender, MailDispatcher.getInstance());
+	}
+
+	/**
+	 * @param sender - The configured sender
+	 * @param dispatcher - Dispatches the messages in background
+	 */
+	public MailOutput(JavaMailSenderImpl sender, MailDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+		setSender(sender);
 	}
 
 	public void setSender(JavaMailSenderImpl sender) {
 		this.sender = sender;
+		this.account = new SmtpAccount(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+		dispatcher.register(account, sender);
 	}
 
 	public JavaMailSenderImpl getSender() {
 		return sender;
 	}
 
+	public MailDispatcher getDispatcher() {
+		return dispatcher;
+	}
+
 	/**
 	 * Send several mail messages
+	 * <p>The messages are queued on the {@link MailDispatcher} and sent in background
 	 * 
 	 * @param messages
 	 *            - The messages to be sent
+	 * @return One future per message, completed when it is sent
 	 */
-	public void send(Message... messages) {
-		final List<MimeMessage> mailing = new ArrayList<>();
+	public List<CompletableFuture<Void>> send(Message... messages) {
 		for (Message message : messages) {
-			try{
-				log.info("MAIL>Subject: " + message.getSubject());
-				log.info("MAIL>Number of destinataries " + message.getDestinataries().size());
-				log.info("MAIL>Number of copies " + message.getCopies().size());
-				//Prepare HTML message
-				MimeMessage mime = prepareMessage(message);
-				// Add to the mailing list
-				mailing.add(mime);
-			}
-			catch(MessagingException e){
-				log.error("Could not send message: "+e.getMessage());
-			}
+			log.info("MAIL>Subject: " + message.getSubject());
+			log.info("MAIL>Number of destinataries " + message.getDestinataries().size());
+			log.info("MAIL>Number of copies " + message.getCopies().size());
 		}
-		log.info("MAIL>Number of mails to be sent: " + mailing.size());
-		//Send and wait
-		runAndWait(getSender(), mailing);
-	}
-	
-	private MimeMessage prepareMessage(Message message) throws MessagingException {
-		//Info
-		String subject = message.getSubject();
-		String body = message.getBody();
-		String[] destinataries = message.getDestinatariesAdresses().toArray(new String[0]);
-		String[] copies = message.getCopiesAdresses().toArray(new String[0]);
-		
-		//Prepare
-		MimeMessage mime = sender.createMimeMessage();
-		MimeMessageHelper helper = new MimeMessageHelper(mime, true, "UTF-8");
-		helper.setSubject(subject);
-		helper.setText(body, true);
-		helper.setFrom(sender.getUsername());
-		helper.setTo(destinataries);
-		helper.setCc(copies);
-		return mime;
+		log.info("MAIL>Number of mails to be sent: " + messages.length);
+		return dispatcher.send(account, messages);
 	}
 	
 	/**
 	 * Run and check time
-	 * <p>Stops execution if it times out
+	 * <p>Sends on its own thread, stopped if it times out
 	 * @param sender
 	 * @param msgs
+	 * @deprecated Use {@link #send(Message...)}, which doesn't block the caller
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Deprecated
 	public void runAndWait(final JavaMailSenderImpl sender,final List<MimeMessage> msgs){
-		Callable<Void> run = new Callable<Void>() {
-			@Override
-			public Void call() throws Exception {
-				try{
-					sender.send(msgs.toArray(new MimeMessage[0]));
-				}
-				catch(Exception e){
-					System.out.println(e);
-				}
-				return null;
-			}
-		};
-		RunnableFuture future = new FutureTask(run);
-		ExecutorService service = Executors.newSingleThreadExecutor();
-		service.execute(future);
+		ExecutorService service = Executors.newSingleThreadExecutor(new NamedThreadFactory("mail-output"));
+		Future<?> future = service.submit(() -> sender.send(msgs.toArray(new MimeMessage[0])));
 		try {
 			future.get(10, TimeUnit.SECONDS); // wait 10 seconds
 		} 
-		catch (Exception ex) {
-			// timed out or another error. Try to stop the code if possible.
+		catch (InterruptedException e) {
 			future.cancel(true);
+			Thread.currentThread().interrupt();
+		}
+		catch (TimeoutException e) {
+			log.warn("MAIL>Timed out waiting " + msgs.size() + " mail(s) to be sent");
+			future.cancel(true);
+		}
+		catch (ExecutionException e) {
+			log.error("Could not send message: " + e.getCause().getMessage());
+		}
+		finally {
+			service.shutdown();
 		}
-		service.shutdown();
 	}
 
-}
\ No newline at end of file
+}
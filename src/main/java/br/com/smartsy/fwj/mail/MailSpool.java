@@ -0,0 +1,605 @@
+package br.com.smartsy.fwj.mail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import br.com.smartsy.fwj.util.NamedThreadFactory;
+
+/**
+ * Durable, append-only spool of outbound messages
+ * <p>Messages are appended to a single file and forced to disk before {@link #append(SmtpAccount, Message...)} returns.
+ * Concurrent appends share the same fsync(group commit), so accepting mail costs about one disk flush per burst.
+ * The spool is drained in batches to a {@link MailDispatcher}, and sent or given up messages are acknowledged.
+ * Once enough entries were acknowledged the file is compacted, keeping only the pending ones.
+ * <p>On opening, the pending messages left by a previous run are recovered and a torn last record is discarded.
+ * Messages are delivered at least once: a message sent right before a crash may be sent again.
+ * <p>Account passwords are not written to disk, so the accounts must be {@link #addAccount(SmtpAccount) added} again
+ * after a restart. Messages of unknown accounts stay pending. Templates are rendered when the message is appended
+ * @author Vagner
+ *
+ */
+public class MailSpool implements Closeable {
+
+	private static final Logger log = Logger.getLogger(MailSpool.class);
+
+	/**
+	 * Name of the spool file on its directory
+	 */
+	public static final String FILE_NAME = "mail.spool";
+
+	/**
+	 * Name of the file keeping the spooled messages that couldn't be decoded, in the spool format
+	 */
+	public static final String QUARANTINE_FILE_NAME = FILE_NAME + ".corrupt";
+
+	/**
+	 * Default number of acknowledged entries that triggers a compaction
+	 */
+	public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+	private static final byte ENQUEUED = 1;
+	private static final byte ACKNOWLEDGED = 2;
+	/**
+	 * Type, id and payload length
+	 */
+	private static final int HEADER = 13;
+	/**
+	 * CRC32 of the header and payload
+	 */
+	private static final int TRAILER = 4;
+
+	private final File file;
+	private final int compactionThreshold;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Map<Long, Entry> pending = new LinkedHashMap<>();
+	private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+	private final ConcurrentMap<String, SmtpAccount> accounts = new ConcurrentHashMap<>();
+	private final Object syncMonitor = new Object();
+	private volatile FileChannel channel;
+	private long position;
+	private long nextId = 1;
+	private int acknowledged;
+	/**
+	 * Bytes written since opened, never reset by compactions
+	 */
+	private volatile long appended;
+	private long synced;
+	private boolean syncing;
+	private ScheduledExecutorService drainer;
+
+	/**
+	 * Opens the spool, recovering its pending messages
+	 * @param directory - Where the spool file is kept, created if needed
+	 * @throws IOException - If the spool couldn't be opened
+	 */
+	public MailSpool(File directory) throws IOException {
+		this(directory, DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * Opens the spool, recovering its pending messages
+	 * @param directory - Where the spool file is kept, created if needed
+	 * @param compactionThreshold - Number of acknowledged entries that triggers a compaction
+	 * @throws IOException - If the spool couldn't be opened
+	 */
+	public MailSpool(File directory, int compactionThreshold) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Couldn't create the spool directory '" + directory + "'");
+		this.file = new File(directory, FILE_NAME);
+		this.compactionThreshold = Math.max(compactionThreshold, 1);
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		recover();
+	}
+
+	/**
+	 * Resolves the account of the spooled messages, needed after a restart
+	 * @param account
+	 */
+	public void addAccount(SmtpAccount account) {
+		accounts.put(account.getKey(), account);
+	}
+
+	/**
+	 * Appends the messages, returning once they are on disk
+	 * @param account - The sender account
+	 * @param messages - The messages
+	 * @throws IOException - If the messages couldn't be written
+	 */
+	public void append(SmtpAccount account, Message... messages) throws IOException {
+		accounts.putIfAbsent(account.getKey(), account);
+		List<byte[]> payloads = new ArrayList<>(messages.length);
+		for (Message message : messages)
+			payloads.add(encode(account, message));
+		long written;
+		lock.lock();
+		try {
+			ensureOpen();
+			for (int i = 0; i < messages.length; i++) {
+				long id = nextId++;
+				long offset = write(ENQUEUED, id, payloads.get(i));
+				pending.put(id, new Entry(id, account.getKey(), offset, payloads.get(i).length));
+			}
+			written = appended;
+		}
+		finally {
+			lock.unlock();
+		}
+		sync(written);
+	}
+
+	/**
+	 * Appends the pending messages of the mailing
+	 * @param mailing
+	 * @throws IOException - If the messages couldn't be written
+	 * @see #append(SmtpAccount, Message...)
+	 */
+	public void append(Mailing mailing) throws IOException {
+		append(mailing.getSender(), mailing.getMessages().toArray(new Message[0]));
+	}
+
+	/**
+	 * Appends the pending messages of every mailing
+	 * @param mailings
+	 * @throws IOException - If the messages couldn't be written
+	 * @see #append(SmtpAccount, Message...)
+	 */
+	public void append(MailingMap mailings) throws IOException {
+		for (Mailing mailing : mailings.values())
+			append(mailing);
+	}
+
+	/**
+	 * @return Number of messages not acknowledged yet
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return pending.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sends the oldest pending messages not being sent yet
+	 * <p>Each message is acknowledged once sent or given up by the dispatcher. Messages rejected by the dispatcher
+	 * (e.g: full queue) stay pending for the next drain. Messages that can't be decoded are moved to the
+	 * {@link #QUARANTINE_FILE_NAME quarantine file} and acknowledged, so they don't block the spool
+	 * @param dispatcher
+	 * @param batchSize - Maximum number of messages
+	 * @return Number of messages handed to the dispatcher
+	 * @throws IOException - If the messages couldn't be read
+	 */
+	public int drain(MailDispatcher dispatcher, int batchSize) throws IOException {
+		List<Entry> batch = new ArrayList<>(Math.min(batchSize, 256));
+		List<byte[]> payloads = new ArrayList<>(batch.size());
+		lock.lock();
+		try {
+			ensureOpen();
+			for (Entry entry : pending.values()) {
+				if (batch.size() >= batchSize)
+					break;
+				if (accounts.containsKey(entry.account) && inFlight.add(entry.id))
+					batch.add(entry);
+			}
+			try {
+				for (Entry entry : batch)
+					payloads.add(read(entry));
+			}
+			catch (IOException e) {
+				for (Entry entry : batch)
+					inFlight.remove(entry.id);
+				throw e;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+		int handed = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			final long id = batch.get(i).id;
+			SmtpAccount account = accounts.get(batch.get(i).account);
+			Message message;
+			try {
+				message = decode(payloads.get(i));
+			}
+			catch (RuntimeException e) {
+				log.error("MAIL>Quarantining the spooled message " + id + ": " + e.getMessage(), e);
+				quarantine(id, payloads.get(i));
+				continue;
+			}
+			try {
+				dispatcher.send(account, message).whenComplete((result, error) -> {
+					if (!(error instanceof RejectedExecutionException))
+						acknowledge(id);
+					inFlight.remove(id);
+				});
+				handed++;
+			}
+			catch (RuntimeException e) {
+				// Stays pending for the next drain
+				inFlight.remove(id);
+				log.error("MAIL>Couldn't hand the spooled message " + id + " to the dispatcher: " + e.getMessage(), e);
+			}
+		}
+		return handed;
+	}
+
+	/**
+	 * Drains the spool in background
+	 * @param dispatcher
+	 * @param batchSize - Maximum number of messages per drain
+	 * @param interval - Delay between drains
+	 * @param unit - The interval unit
+	 */
+	public synchronized void start(final MailDispatcher dispatcher, final int batchSize, long interval, TimeUnit unit) {
+		if (drainer != null)
+			throw new IllegalStateException("The spool is already being drained");
+		drainer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("mail-spool"));
+		drainer.scheduleWithFixedDelay(() -> {
+			try {
+				drain(dispatcher, batchSize);
+			}
+			catch (IOException | RuntimeException e) {
+				log.error("MAIL>Couldn't drain the spool '" + file + "': " + e.getMessage(), e);
+			}
+		}, 0, interval, unit);
+	}
+
+	/**
+	 * Stops draining and closes the file
+	 * <p>Messages still being sent are recovered on the next opening
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (drainer != null)
+				drainer.shutdownNow();
+		}
+		lock.lock();
+		try {
+			if (channel.isOpen()) {
+				channel.force(false);
+				channel.close();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the entry, compacting the file if enough entries were acknowledged
+	 * <p>Acknowledgements are not forced to disk, if lost the message is sent again
+	 */
+	private void acknowledge(long id) {
+		lock.lock();
+		try {
+			if (pending.remove(id) == null || !channel.isOpen())
+				return;
+			write(ACKNOWLEDGED, id, new byte[0]);
+			if (++acknowledged >= compactionThreshold && acknowledged >= pending.size())
+				compact();
+		}
+		catch (IOException e) {
+			log.error("MAIL>Couldn't acknowledge the spooled message " + id + ": " + e.getMessage(), e);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves the message that can't be decoded to the quarantine file and acknowledges it
+	 * <p>If the quarantine file can't be written the message stays pending, but out of the drains until reopened
+	 */
+	private void quarantine(long id, byte[] payload) {
+		try (FileChannel target = FileChannel.open(new File(file.getParentFile(), QUARANTINE_FILE_NAME).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			ByteBuffer record = record(ENQUEUED, id, payload);
+			while (record.hasRemaining())
+				target.write(record);
+			target.force(false);
+		}
+		catch (IOException e) {
+			log.error("MAIL>Couldn't quarantine the spooled message " + id + ", skipping it until the spool is reopened: " + e.getMessage(), e);
+			return;
+		}
+		acknowledge(id);
+		inFlight.remove(id);
+	}
+
+	/**
+	 * Forces the written bytes to disk, once for every thread waiting at the time
+	 * @param target - The written bytes that must be durable
+	 */
+	private void sync(long target) throws IOException {
+		synchronized (syncMonitor) {
+			while (synced < target && syncing) {
+				try {
+					syncMonitor.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting the spool to be synced");
+				}
+			}
+			if (synced >= target)
+				return;
+			syncing = true;
+		}
+		long reached = appended;
+		FileChannel current = channel;
+		boolean forced = false;
+		try {
+			current.force(false);
+			forced = true;
+		}
+		catch (ClosedChannelException e) {
+			//Replaced by a compaction, which already forced the new file
+			if (current == channel)
+				throw e;
+			forced = true;
+		}
+		finally {
+			synchronized (syncMonitor) {
+				syncing = false;
+				if (forced)
+					synced = Math.max(synced, reached);
+				syncMonitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Rewrites the file with the pending entries only
+	 */
+	private void compact() throws IOException {
+		File compacted = new File(file.getParentFile(), FILE_NAME + ".tmp");
+		Map<Long, Entry> entries = new LinkedHashMap<>();
+		long offset = 0;
+		try (FileChannel target = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			for (Entry entry : pending.values()) {
+				ByteBuffer record = record(ENQUEUED, entry.id, read(entry));
+				while (record.hasRemaining())
+					offset += target.write(record);
+				entries.put(entry.id, new Entry(entry.id, entry.account, offset - entry.length - TRAILER, entry.length));
+			}
+			target.force(true);
+		}
+		Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		forceDirectory();
+		FileChannel previous = channel;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		previous.close();
+		pending.clear();
+		pending.putAll(entries);
+		position = offset;
+		acknowledged = 0;
+		synchronized (syncMonitor) {
+			synced = Math.max(synced, appended);
+		}
+		log.debug("MAIL>Spool '" + file + "' compacted to " + entries.size() + " pending message(s)");
+	}
+
+	/**
+	 * Forces the directory entries to disk, so the renamed file survives a crash
+	 */
+	private void forceDirectory() {
+		try (FileChannel directory = FileChannel.open(file.getParentFile().toPath(), StandardOpenOption.READ)) {
+			directory.force(true);
+		}
+		catch (IOException e) {
+			// Some platforms(e.g: Windows) can't open directories, their renames are durable already
+			log.debug("MAIL>Couldn't force the spool directory '" + file.getParentFile() + "': " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads the pending entries, truncating a torn or corrupted tail
+	 */
+	private void recover() throws IOException {
+		long offset = 0;
+		long size = channel.size();
+		InputStream input = Channels.newInputStream(channel.position(0));
+		DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+		CRC32 crc = new CRC32();
+		while (offset + HEADER + TRAILER <= size) {
+			try {
+				byte type = data.readByte();
+				long id = data.readLong();
+				int length = data.readInt();
+				if ((type != ENQUEUED && type != ACKNOWLEDGED) || length < 0 || offset + HEADER + length + TRAILER > size)
+					break;
+				byte[] payload = new byte[length];
+				data.readFully(payload);
+				crc.reset();
+				crc.update(ByteBuffer.allocate(HEADER).put(type).putLong(id).putInt(length).array());
+				crc.update(payload);
+				if ((int) crc.getValue() != data.readInt())
+					break;
+				if (type == ENQUEUED)
+					pending.put(id, new Entry(id, accountKey(payload), offset + HEADER, length));
+				else if (pending.remove(id) != null)
+					acknowledged++;
+				nextId = Math.max(nextId, id + 1);
+				offset += HEADER + length + TRAILER;
+			}
+			catch (EOFException e) {
+				break;
+			}
+		}
+		if (offset < size) {
+			log.warn("MAIL>Discarding " + (size - offset) + " byte(s) of a torn record on the spool '" + file + "'");
+			channel.truncate(offset);
+			channel.force(true);
+		}
+		position = offset;
+		if (!pending.isEmpty())
+			log.info("MAIL>Recovered " + pending.size() + " pending message(s) from the spool '" + file + "'");
+	}
+
+	/**
+	 * Writes the record at the end of the file
+	 * @return The payload offset
+	 */
+	private long write(byte type, long id, byte[] payload) throws IOException {
+		ByteBuffer record = record(type, id, payload);
+		int length = record.remaining();
+		long offset = position;
+		while (record.hasRemaining())
+			position += channel.write(record, position);
+		appended += length;
+		return offset + HEADER;
+	}
+
+	private static ByteBuffer record(byte type, long id, byte[] payload) {
+		ByteBuffer record = ByteBuffer.allocate(HEADER + payload.length + TRAILER);
+		record.put(type).putLong(id).putInt(payload.length).put(payload);
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 0, HEADER + payload.length);
+		record.putInt((int) crc.getValue());
+		record.flip();
+		return record;
+	}
+
+	private byte[] read(Entry entry) throws IOException {
+		ByteBuffer payload = ByteBuffer.allocate(entry.length);
+		long offset = entry.offset;
+		while (payload.hasRemaining()) {
+			int read = channel.read(payload, offset + payload.position());
+			if (read < 0)
+				throw new EOFException("The spooled message " + entry.id + " is truncated");
+		}
+		return payload.array();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (!channel.isOpen())
+			throw new ClosedChannelException();
+	}
+
+	private static byte[] encode(SmtpAccount account, Message message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeString(out, account.getHost());
+		out.writeInt(account.getPort());
+		writeString(out, account.getUsername());
+		writeString(out, message.getSubject());
+		writeString(out, message.getBody());
+		writeRecipients(out, message.getDestinataries());
+		writeRecipients(out, message.getCopies());
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static Message decode(byte[] payload) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+			readString(in);
+			in.readInt();
+			readString(in);
+			Message message = new Message();
+			message.setSubject(readString(in));
+			message.setBody(readString(in));
+			message.addDestinataries(readRecipients(in));
+			message.addCopies(readRecipients(in));
+			return message;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Corrupted spooled message: " + e.getMessage(), e);
+		}
+	}
+
+	private static String accountKey(byte[] payload) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		String host = readString(in);
+		int port = in.readInt();
+		return new SmtpAccount(host, port, readString(in), null).getKey();
+	}
+
+	private static void writeRecipients(DataOutputStream out, Collection<Recipient> recipients) throws IOException {
+		out.writeInt(recipients.size());
+		for (Recipient recipient : recipients) {
+			writeString(out, recipient.getName());
+			writeString(out, recipient.getEmail());
+		}
+	}
+
+	private static List<Recipient> readRecipients(DataInputStream in) throws IOException {
+		Recipient[] recipients = new Recipient[in.readInt()];
+		for (int i = 0; i < recipients.length; i++)
+			recipients[i] = new Recipient(readString(in), readString(in));
+		return Arrays.asList(recipients);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static class Entry {
+		private final long id;
+		private final String account;
+		private final long offset;
+		private final int length;
+
+		private Entry(long id, String account, long offset, int length) {
+			this.id = id;
+			this.account = account;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+package br.com.smartsy.fwj.mail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivery counters of a {@link MailDispatcher}
+ * @author Vagner
+ *
+ */
+public class MailStatistics {
+
+	private final AtomicLong queued = new AtomicLong();
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong retried = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong connections = new AtomicLong();
+	private final AtomicLong totalLatency = new AtomicLong();
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	void queued() {
+		queued.incrementAndGet();
+	}
+
+	void sent(long latency) {
+		sent.incrementAndGet();
+		totalLatency.addAndGet(latency);
+		maxLatency.accumulateAndGet(latency, Math::max);
+	}
+
+	void failed() {
+		failed.incrementAndGet();
+	}
+
+	void retried() {
+		retried.incrementAndGet();
+	}
+
+	void rejected() {
+		rejected.incrementAndGet();
+	}
+
+	void connected() {
+		connections.incrementAndGet();
+	}
+
+	/**
+	 * @return Number of messages accepted by the dispatcher
+	 */
+	public long getQueued() {
+		return queued.get();
+	}
+
+	public long getSent() {
+		return sent.get();
+	}
+
+	/**
+	 * @return Number of messages given up, after the last attempt or a permanent failure
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return Number of attempts rescheduled after a transient failure
+	 */
+	public long getRetried() {
+		return retried.get();
+	}
+
+	/**
+	 * @return Number of messages refused because the queue was full or the dispatcher shut down
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/**
+	 * @return Number of SMTP connections opened, lower than the sent messages when they are being reused
+	 */
+	public long getConnections() {
+		return connections.get();
+	}
+
+	/**
+	 * @param unit
+	 * @return Average time from queueing to delivery of the sent messages
+	 */
+	public long getAverageLatency(TimeUnit unit) {
+		long sent = getSent();
+		return sent == 0 ? 0 : unit.convert(totalLatency.get() / sent, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit
+	 * @return Longest time from queueing to delivery
+	 */
+	public long getMaxLatency(TimeUnit unit) {
+		return unit.convert(maxLatency.get(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "queued=" + getQueued() + ", sent=" + getSent() + ", failed=" + getFailed() + ", retried=" + getRetried() + ", rejected="
+				+ getRejected() + ", connections=" + getConnections() + ", avgLatency=" + getAverageLatency(TimeUnit.MILLISECONDS) + "ms, maxLatency="
+				+ getMaxLatency(TimeUnit.MILLISECONDS) + "ms";
+	}
+
+}
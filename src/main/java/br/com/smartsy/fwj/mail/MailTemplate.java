@@ -0,0 +1,285 @@
+package br.com.smartsy.fwj.mail;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import br.com.smartsy.fwj.cache.LruCache;
+import br.com.smartsy.fwj.util.PropertiesResolver;
+
+/**
+ * Compiled mail template, rendered per recipient
+ * <p>Variables are written as <code>${name}</code>, HTML escaped on the body, or <code>$!{name}</code> to be written as is.
+ * Missing variables are rendered blank. Every message built from the template also gets the <code>recipient.name</code>
+ * and <code>recipient.email</code> variables
+ * <p>Templates are parsed once and cached by their text. Messages built by {@link #createMessage(Recipient, Map)} only render
+ * their body when sent, so a mass mailing doesn't hold one full body per recipient while queued
+ * @author Vagner
+ *
+ */
+public final class MailTemplate {
+
+	/**
+	 * Maximum number of compiled templates kept
+	 */
+	public static final int MAX_CACHED = 500;
+
+	private static final LruCache<String, Segment[]> compiled = new LruCache<String, Segment[]>(MAX_CACHED, 0, TimeUnit.NANOSECONDS);
+
+	private final Segment[] subject;
+	private final Segment[] body;
+	private final int bodyLength;
+
+	private MailTemplate(Segment[] subject, Segment[] body) {
+		this.subject = subject;
+		this.body = body;
+		int length = 0;
+		for (Segment segment : body)
+			length += segment.variable ? 16 : segment.text.length();
+		this.bodyLength = length;
+	}
+
+	/**
+	 * Compiles the template, reusing the cached parsing of the same texts
+	 * @param subject - The subject template
+	 * @param body - The HTML body template
+	 * @return MailTemplate
+	 */
+	public static MailTemplate compile(String subject, String body) {
+		return new MailTemplate(parse(subject), parse(body));
+	}
+
+	/**
+	 * Compiles the template stored on the properties as <code>&lt;name&gt;.subject</code> and <code>&lt;name&gt;.body</code>
+	 * @param properties
+	 * @param name - The template name
+	 * @return MailTemplate
+	 */
+	public static MailTemplate load(PropertiesResolver properties, String name) {
+		String body = properties.getProperty(name + ".body");
+		if (body == null)
+			throw new IllegalArgumentException("The mail template '" + name + "' does not exist");
+		return compile(properties.getProperty(name + ".subject"), body);
+	}
+
+	/**
+	 * Clears the compiled templates
+	 */
+	public static void clear() {
+		compiled.invalidateAll();
+	}
+
+	/**
+	 * Builds the message of the recipient, rendered only when its subject or body is read
+	 * <p>The variables are copied, later changes on the map don't affect the message
+	 * @param recipient
+	 * @param variables - Values of the template variables
+	 * @return Message
+	 */
+	public Message createMessage(Recipient recipient, Map<String, ?> variables) {
+		return newMessage(recipient, snapshot(variables));
+	}
+
+	/**
+	 * Builds one message per recipient
+	 * <p>The variables are copied once and shared between the messages
+	 * @param recipients
+	 * @param variables - Values of the template variables
+	 * @return The messages
+	 * @see #createMessage(Recipient, Map)
+	 */
+	public List<Message> createMessages(Collection<Recipient> recipients, Map<String, ?> variables) {
+		Map<String, Object> shared = snapshot(variables);
+		List<Message> messages = new ArrayList<>(recipients.size());
+		for (Recipient recipient : recipients)
+			messages.add(newMessage(recipient, shared));
+		return messages;
+	}
+
+	private Message newMessage(Recipient recipient, Map<String, Object> shared) {
+		Message message = new Message();
+		message.addDestinatary(recipient);
+		message.setTemplate(this, new RecipientVariables(recipient, shared));
+		return message;
+	}
+
+	/**
+	 * Immutable copy of the variables, read by the dispatcher threads
+	 */
+	private static Map<String, Object> snapshot(Map<String, ?> variables) {
+		if (variables == null || variables.isEmpty())
+			return Collections.emptyMap();
+		return Collections.unmodifiableMap(new HashMap<String, Object>(variables));
+	}
+
+	/**
+	 * @param variables
+	 * @return The rendered subject
+	 */
+	public String renderSubject(Map<String, ?> variables) {
+		return render(subject, variables, new StringBuilder(), false);
+	}
+
+	/**
+	 * @param variables
+	 * @return The rendered body
+	 */
+	public String renderBody(Map<String, ?> variables) {
+		return render(body, variables, new StringBuilder(bodyLength), true);
+	}
+
+	/**
+	 * Writes the rendered body on the output, without building it in memory
+	 * @param variables
+	 * @param out
+	 * @throws IOException - If the output couldn't be written
+	 */
+	public void renderBody(Map<String, ?> variables, Appendable out) throws IOException {
+		write(body, variables, out, true);
+	}
+
+	private static String render(Segment[] segments, Map<String, ?> variables, StringBuilder out, boolean html) {
+		try {
+			write(segments, variables, out, html);
+		}
+		catch (IOException e) {
+			// StringBuilder doesn't throw it
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
+	}
+
+	private static void write(Segment[] segments, Map<String, ?> variables, Appendable out, boolean html) throws IOException {
+		for (Segment segment : segments) {
+			if (!segment.variable) {
+				out.append(segment.text);
+				continue;
+			}
+			Object value = variables != null ? variables.get(segment.text) : null;
+			if (value == null)
+				continue;
+			if (html && segment.escaped)
+				escape(String.valueOf(value), out);
+			else
+				out.append(String.valueOf(value));
+		}
+	}
+
+	private static void escape(String value, Appendable out) throws IOException {
+		int start = 0;
+		for (int i = 0; i < value.length(); i++) {
+			String entity;
+			switch (value.charAt(i)) {
+			case '<':
+				entity = "&lt;";
+				break;
+			case '>':
+				entity = "&gt;";
+				break;
+			case '&':
+				entity = "&amp;";
+				break;
+			case '"':
+				entity = "&quot;";
+				break;
+			case '\'':
+				entity = "&#39;";
+				break;
+			default:
+				continue;
+			}
+			out.append(value, start, i).append(entity);
+			start = i + 1;
+		}
+		out.append(value, start, value.length());
+	}
+
+	private static Segment[] parse(String template) {
+		if (template == null)
+			return new Segment[0];
+		try {
+			return compiled.get(template, MailTemplate::tokenize);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Splits the template on literal and variable segments, unterminated variables are kept as literal
+	 */
+	private static Segment[] tokenize(String template) {
+		List<Segment> segments = new ArrayList<>();
+		int start = 0;
+		int index = 0;
+		while ((index = template.indexOf('$', index)) >= 0) {
+			boolean raw = index + 1 < template.length() && template.charAt(index + 1) == '!';
+			int open = index + (raw ? 2 : 1);
+			int close = open < template.length() && template.charAt(open) == '{' ? template.indexOf('}', open) : -1;
+			if (close < 0) {
+				index++;
+				continue;
+			}
+			if (index > start)
+				segments.add(new Segment(template.substring(start, index), false, false));
+			segments.add(new Segment(template.substring(open + 1, close).trim(), true, !raw));
+			start = index = close + 1;
+		}
+		if (start < template.length())
+			segments.add(new Segment(template.substring(start), false, false));
+		return segments.toArray(new Segment[0]);
+	}
+
+	/**
+	 * The recipient variables over the shared ones, without copying them per message
+	 */
+	private static class RecipientVariables extends AbstractMap<String, Object> {
+		private final Recipient recipient;
+		private final Map<String, Object> shared;
+
+		private RecipientVariables(Recipient recipient, Map<String, Object> shared) {
+			this.recipient = recipient;
+			this.shared = shared;
+		}
+
+		@Override
+		public Object get(Object key) {
+			if ("recipient.name".equals(key))
+				return recipient.getName();
+			if ("recipient.email".equals(key))
+				return recipient.getEmail();
+			return shared.get(key);
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			Map<String, Object> values = new HashMap<>(shared);
+			values.put("recipient.name", recipient.getName());
+			values.put("recipient.email", recipient.getEmail());
+			return values.entrySet();
+		}
+	}
+
+	private static class Segment {
+		private final String text;
+		private final boolean variable;
+		private final boolean escaped;
+
+		private Segment(String text, boolean variable, boolean escaped) {
+			this.text = text;
+			this.variable = variable;
+			this.escaped = escaped;
+		}
+	}
+
+}
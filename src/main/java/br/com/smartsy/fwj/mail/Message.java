@@ -2,6 +2,7 @@ package br.com.smartsy.fwj.mail;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -15,12 +16,28 @@ public class Message {
 	private String body;
 	private Set<Recipient> destinataries = new HashSet<>();
 	private Set<Recipient> copies = new HashSet<>();
+	private MailTemplate template;
+	private Map<String, ?> variables;
+	private String renderedSubject;
 	
+	/**
+	 * @return The subject, rendered from the template once if not set
+	 */
 	public String getSubject() {
+		if (subject == null && template != null) {
+			if (renderedSubject == null)
+				renderedSubject = template.renderSubject(variables);
+			return renderedSubject;
+		}
 		return subject;
 	}
 	
+	/**
+	 * @return The body, rendered from the template if not set
+	 */
 	public String getBody() {
+		if (body == null && template != null)
+			return template.renderBody(variables);
 		return body;
 	}
 	
@@ -54,6 +71,21 @@ public class Message {
 		this.body = body;
 	}
 	
+	/**
+	 * Renders the subject and body from the template when they are read, unless set explicitly
+	 * @param template
+	 * @param variables - Values of the template variables
+	 */
+	public void setTemplate(MailTemplate template, Map<String, ?> variables) {
+		this.template = template;
+		this.variables = variables;
+		this.renderedSubject = null;
+	}
+	
+	public MailTemplate getTemplate() {
+		return template;
+	}
+	
 	public void addDestinatary(Recipient destinatary){
 		this.destinataries.add(destinatary);
 	}
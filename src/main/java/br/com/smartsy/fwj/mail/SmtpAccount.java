@@ -7,10 +7,22 @@ package br.com.smartsy.fwj.mail;
  */
 public class SmtpAccount {
 
+	/**
+	 * Default number of concurrent deliveries per account
+	 */
+	public static final int DEFAULT_POOL_SIZE = 2;
+
+	/**
+	 * Default number of messages sent through a connection before it is renewed
+	 */
+	public static final int DEFAULT_MAX_MESSAGES_PER_CONNECTION = 100;
+
 	private String host;
 	private int port;
 	private String username;
 	private String password;
+	private int poolSize = DEFAULT_POOL_SIZE;
+	private int maxMessagesPerConnection = DEFAULT_MAX_MESSAGES_PER_CONNECTION;
 
 	public SmtpAccount() {
 		// TODO Auto-generated constructor stub
@@ -55,4 +67,45 @@ public class SmtpAccount {
 		this.password = password;
 	}
 
+	/**
+	 * @return Number of concurrent deliveries through this account
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Sets the number of concurrent deliveries, applied when the account is first used by a {@link MailDispatcher}
+	 * @param poolSize
+	 */
+	public void setPoolSize(int poolSize) {
+		if (poolSize < 1)
+			throw new IllegalArgumentException("The pool size must be greater than zero");
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * @return Number of messages sent through a kept-alive connection before it is renewed
+	 */
+	public int getMaxMessagesPerConnection() {
+		return maxMessagesPerConnection;
+	}
+
+	/**
+	 * Sets the number of messages per connection, applied when the account is first used by a {@link MailDispatcher}
+	 * @param maxMessagesPerConnection
+	 */
+	public void setMaxMessagesPerConnection(int maxMessagesPerConnection) {
+		if (maxMessagesPerConnection < 1)
+			throw new IllegalArgumentException("The number of messages per connection must be greater than zero");
+		this.maxMessagesPerConnection = maxMessagesPerConnection;
+	}
+
+	/**
+	 * @return Identifies the account on the dispatcher pools
+	 */
+	String getKey() {
+		return username + "@" + host + ":" + port;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package br.com.smartsy.fwj.mail;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.log4j.Logger;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+/**
+ * Kept-alive SMTP transports of an account
+ * <p>Connections are borrowed per message and returned afterwards, so consecutive messages skip the handshake and login.
+ * A connection is closed after {@link SmtpAccount#getMaxMessagesPerConnection()} messages or when idle for too long,
+ * and replaced when the server drops it
+ * @author Vagner
+ *
+ */
+class SmtpTransportPool {
+
+	private static final Logger log = Logger.getLogger(SmtpTransportPool.class);
+
+	/**
+	 * Idle connections older than this are closed instead of reused, most servers drop them around this time
+	 */
+	static final long MAX_IDLE = TimeUnit.SECONDS.toNanos(30);
+
+	private final JavaMailSenderImpl sender;
+	private final int maxIdle;
+	private final int maxMessages;
+	private final MailStatistics statistics;
+	private final Deque<Connection> idle = new ArrayDeque<>();
+	private boolean closed;
+
+	/**
+	 * @param sender - Provides the session and credentials
+	 * @param maxIdle - Maximum number of idle connections kept
+	 * @param maxMessages - Maximum number of messages per connection
+	 * @param statistics - Counts the opened connections
+	 */
+	SmtpTransportPool(JavaMailSenderImpl sender, int maxIdle, int maxMessages, MailStatistics statistics) {
+		this.sender = sender;
+		this.maxIdle = maxIdle;
+		this.maxMessages = maxMessages;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Sends the message through a pooled connection
+	 * <p>If a reused connection was dropped by the server the message is sent once more on a new one
+	 * @param mime
+	 * @throws MessagingException - The delivery failure
+	 */
+	void send(MimeMessage mime) throws MessagingException {
+		if (mime.getSentDate() == null)
+			mime.setSentDate(new Date());
+		String messageId = mime.getMessageID();
+		mime.saveChanges();
+		//Keep the id set by the caller, saveChanges generates a new one
+		if (messageId != null)
+			mime.setHeader("Message-ID", messageId);
+		Connection connection = borrow();
+		try {
+			connection.transport.sendMessage(mime, mime.getAllRecipients());
+		}
+		catch (MessagingException e) {
+			if (!connection.reused || connection.transport.isConnected()) {
+				discard(connection);
+				throw e;
+			}
+			log.debug("MAIL>Connection to " + sender.getHost() + " dropped, reconnecting: " + e.getMessage());
+			discard(connection);
+			connection = open();
+			try {
+				connection.transport.sendMessage(mime, mime.getAllRecipients());
+			}
+			catch (MessagingException retry) {
+				discard(connection);
+				throw retry;
+			}
+		}
+		release(connection);
+	}
+
+	/**
+	 * Closes the idle connections and the ones released afterwards
+	 */
+	void close() {
+		Connection[] connections;
+		synchronized (idle) {
+			closed = true;
+			connections = idle.toArray(new Connection[0]);
+			idle.clear();
+		}
+		for (Connection connection : connections)
+			discard(connection);
+	}
+
+	private Connection borrow() throws MessagingException {
+		long now = System.nanoTime();
+		while (true) {
+			Connection connection;
+			synchronized (idle) {
+				connection = idle.pollFirst();
+			}
+			if (connection == null)
+				return open();
+			if (now - connection.releasedAt < MAX_IDLE) {
+				connection.reused = true;
+				return connection;
+			}
+			discard(connection);
+		}
+	}
+
+	private Connection open() throws MessagingException {
+		Transport transport = sender.getSession().getTransport(sender.getProtocol());
+		transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+		statistics.connected();
+		return new Connection(transport);
+	}
+
+	private void release(Connection connection) {
+		if (++connection.messages < maxMessages) {
+			connection.releasedAt = System.nanoTime();
+			synchronized (idle) {
+				if (!closed && idle.size() < maxIdle) {
+					//Most recently used first, so the surplus ones age out
+					idle.addFirst(connection);
+					return;
+				}
+			}
+		}
+		discard(connection);
+	}
+
+	private void discard(Connection connection) {
+		try {
+			connection.transport.close();
+		}
+		catch (MessagingException e) {
+			log.debug("MAIL>Couldn't close the connection to " + sender.getHost() + ": " + e.getMessage());
+		}
+	}
+
+	private static class Connection {
+		private final Transport transport;
+		private int messages;
+		private long releasedAt;
+		private boolean reused;
+
+		private Connection(Transport transport) {
+			this.transport = transport;
+		}
+	}
+
+}
@@ -1,35 +1,62 @@
 package br.com.smartsy.fwj.mvc.repository;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
-import javax.persistence.Id;
 import javax.persistence.PersistenceException;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
-import javax.persistence.Version;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.exception.ConstraintViolationException;
 
+import br.com.smartsy.fwj.cache.LruCache;
+import br.com.smartsy.fwj.exception.ConnectionException;
 import br.com.smartsy.fwj.exception.EntityExistsException;
 import br.com.smartsy.fwj.exception.EntityNotFoundException;
 import br.com.smartsy.fwj.exception.RepositoryException;
+import br.com.smartsy.fwj.persistence.BatchReport;
+import br.com.smartsy.fwj.persistence.CacheableQuery;
+import br.com.smartsy.fwj.persistence.ChunkProcessor;
 import br.com.smartsy.fwj.persistence.CustomQuery;
-import br.com.smartsy.fwj.persistence.function.QueryFunction;
+import br.com.smartsy.fwj.persistence.EntityManagerFactoryBuilder;
+import br.com.smartsy.fwj.persistence.KeysetCursor;
+import br.com.smartsy.fwj.persistence.KeysetPage;
+import br.com.smartsy.fwj.persistence.ScrollIterator;
+import br.com.smartsy.fwj.persistence.cache.QueryCache;
+import br.com.smartsy.fwj.persistence.function.QueryTemplate;
+import br.com.smartsy.fwj.persistence.metadata.EntityMetadata;
+import br.com.smartsy.fwj.persistence.metadata.PropertyAccessor;
+import br.com.smartsy.fwj.persistence.pool.BasicConnectionPool;
+import br.com.smartsy.fwj.persistence.pool.EntityManagerPool;
+import br.com.smartsy.fwj.persistence.pool.PoolSettings;
 import br.com.smartsy.fwj.security.Encrypter;
 import br.com.smartsy.fwj.util.GenericsUtil;
 import br.com.smartsy.fwj.util.RandomicGenerator;
 import br.com.smartsy.fwj.util.StringUtil;
-import br.com.smartsys.fwj.annotation.Encrypt;
+import br.com.smartsys.fwj.annotation.EntityCache;
 import br.com.smartsys.fwj.annotation.Random;
 
 /**
@@ -44,14 +71,51 @@ import br.com.smartsys.fwj.annotation.Random;
 public abstract class AbstractRepository<T> implements Repository<T> {
 
 	protected static final Logger log = Logger.getLogger(AbstractRepository.class);
+	
+	/**
+	 * Default number of entities flushed per chunk on batch writes
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 50;
+	
+	/**
+	 * Default number of rows fetched per round trip when scrolling
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 100;
+	
+	/**
+	 * Default number of entities per page on keyset pagination
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 100;
 
 	protected final EntityManagerFactory emf;
 	private static ThreadLocal<EntityManager> emThreadLocal = new ThreadLocal<EntityManager>();;
 	private final Boolean isJta;
+	private int batchSize;
+	private int fetchSize = DEFAULT_FETCH_SIZE;
 
 	public AbstractRepository(EntityManagerFactory factory) {
 		this.isJta = factory.getProperties().get("javax.persistence.jtaDataSource") != null;
 		this.emf = factory;
+		this.batchSize = resolveBatchSize(factory);
+	}
+	
+	/**
+	 * Gets the number of entities flushed per chunk on batch writes
+	 * <p>Defaults to the factory "hibernate.jdbc.batch_size", or {@value #DEFAULT_BATCH_SIZE}
+	 * @return Chunk size
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	/**
+	 * Sets the number of entities flushed per chunk on batch writes
+	 * @param batchSize
+	 */
+	public void setBatchSize(int batchSize) {
+		if(batchSize < 1)
+			throw new IllegalArgumentException("The batch size must be greater than zero");
+		this.batchSize = batchSize;
 	}
 	
 	protected void setEntityManager(EntityManager em) {
@@ -74,14 +138,43 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 		return emf;
 	}
 	
+	/**
+	 * Creates a new entity-manager, leased from the {@link EntityManagerPool} of the factory when it was added
+	 * to the {@link BasicConnectionPool}
+	 * <p>Closing the entity-manager gives it back to the pool. Leases taken while the thread holds its own
+	 * (e.g: {@link #scroll()}, {@link #getIdRange()}) count against the limit too, see {@link PoolSettings#maxLeases(int)}
+	 * @return EntityManager
+	 * @throws PersistenceException - If no lease was available in time, caused by a {@link ConnectionException}
+	 */
+	protected EntityManager createEntityManager() {
+		EntityManagerPool pool = EntityManagerPool.of(emf);
+		if (pool == null)
+			return emf.createEntityManager();
+		try {
+			return pool.borrow(null);
+		} catch (ConnectionException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		}
+	}
+	
 	/**
 	 * Get the entity class type
 	 * @return
 	 */
+	@Override
 	public Class<T> getEntityType(){
 		return GenericsUtil.resolveGenericType(this.getClass());
 	}
 	
+	/**
+	 * Resolves the entity identifier
+	 * @param entity
+	 * @return The id, or null if not assigned yet
+	 */
+	public Serializable getIdentifier(T entity){
+		return (Serializable) emf.getPersistenceUnitUtil().getIdentifier(entity);
+	}
+	
 	/**
 	 * Resolves the current entity name
 	 */
@@ -96,9 +189,28 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 	
 	/**
 	 * Select the entity by its id
+	 * <p>Entities annotated with {@link EntityCache} are read through their cache, see {@link CachingRepository}
 	 */
 	@Override
 	public T get(Serializable id) throws RepositoryException, EntityNotFoundException {
+		LruCache<String, Object> cache = id != null ? CachingRepository.getCache(getEntityType()) : null;
+		if (cache == null)
+			return find(id);
+		try {
+			return getEntityType().cast(cache.get(CachingRepository.key(id), key -> find(id)));
+		}
+		catch (RepositoryException | EntityNotFoundException | RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new RepositoryException("Couldn't load the entity '" + getEntityName() + "' with id '" + id + "': " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Select the entity by its id on the database
+	 */
+	private T find(Serializable id) throws RepositoryException, EntityNotFoundException {
 		Class<T> clazz = getEntityType();
 		T entity = null;
 		try {
@@ -159,6 +271,87 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 		return listAll(0, 0);
 	}
 	
+	/**
+	 * Lists a page of entities ordered by the sort key, seeking after the cursor key
+	 * <p>Unlike offset paging, every page costs the same as the first one
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public KeysetPage<T> listPage(String cursor, Integer maxResults) throws RepositoryException {
+		Class<T> clazz = getEntityType();
+		int size = maxResults == null || maxResults <= 0 ? DEFAULT_PAGE_SIZE : maxResults;
+		try {
+			begin();
+			SingularAttribute<? super T, ?> key = getKeysetAttribute();
+			Object after = KeysetCursor.decode(cursor, key.getJavaType());
+			CriteriaBuilder builder = getEntityManager().getCriteriaBuilder();
+			CriteriaQuery<T> criteria = builder.createQuery(clazz);
+			Root<T> root = criteria.from(clazz);
+			Path<Comparable<Object>> path = root.get(key.getName());
+			if(after != null)
+				criteria.where(builder.greaterThan(path, (Comparable<Object>) after));
+			criteria.select(root).orderBy(builder.asc(path));
+			//One more row tells if there is a next page
+			List<T> entities = getEntityManager().createQuery(criteria).setMaxResults(size + 1).getResultList();
+			String next = null;
+			if(entities.size() > size){
+				entities = new ArrayList<T>(entities.subList(0, size));
+				next = KeysetCursor.encode(readKey(key, entities.get(size - 1)));
+			}
+			return new KeysetPage<T>(entities, next);
+		} catch (Exception e) {
+			String msg = "An unexpected error occured while trying to list a page of the entity '" + clazz.getSimpleName() + "' after the cursor '" + cursor + "': "+e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		} finally {
+			close();
+		}
+	}
+	
+	/**
+	 * Gets the property used as keyset pagination sort key
+	 * <p>Defaults to the entity {@link javax.persistence.Id}. If overridden, the property must be unique and not null
+	 * @return Property name, or null to use the id
+	 */
+	protected String getKeysetProperty() {
+		return null;
+	}
+	
+	/**
+	 * Resolves the keyset sort key attribute from the metamodel
+	 * @return Sort key attribute
+	 */
+	private SingularAttribute<? super T, ?> getKeysetAttribute() {
+		EntityType<T> type = emf.getMetamodel().entity(getEntityType());
+		String property = getKeysetProperty();
+		if(StringUtil.hasText(property))
+			return type.getSingularAttribute(property);
+		return type.getId(type.getIdType().getJavaType());
+	}
+	
+	/**
+	 * Reads the sort key value of the entity
+	 * @param attribute
+	 * @param entity
+	 * @return Key value
+	 * @throws ReflectiveOperationException
+	 */
+	private Object readKey(SingularAttribute<? super T, ?> attribute, T entity) throws ReflectiveOperationException {
+		if(attribute.isId())
+			return emf.getPersistenceUnitUtil().getIdentifier(entity);
+		Member member = attribute.getJavaMember();
+		if(member instanceof Field){
+			Field field = (Field) member;
+			if(!field.isAccessible())
+				field.setAccessible(true);
+			return field.get(entity);
+		}
+		Method getter = (Method) member;
+		if(!getter.isAccessible())
+			getter.setAccessible(true);
+		return getter.invoke(entity);
+	}
+	
 	/**
 	 * Executes a custom query
 	 * @param query
@@ -170,52 +363,86 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 		Class<T> clazz = getEntityType();
 		List<T> entities = null;
 		try{
-			begin();
-			entities = query.perform(getEntityManager(), clazz);
+			if(query instanceof CacheableQuery)
+				entities = QueryCache.getInstance().get(clazz, ((CacheableQuery) query).getCacheKey(), 0, 0, () -> performQuery(query));
+			else
+				entities = performQuery(query);
 		} catch(Exception e){
 			String msg = "An unexpected error occured while trying to execute the custom query '"+query.getClass().getSimpleName()+"' for entity '" + clazz.getSimpleName() + "': "+e.getMessage();
 			log.error(msg, e);
 			throw new RepositoryException(msg, e);
-		} finally {
-			close();
 		}
 		if (entities == null || entities.size() == 0)
 			throw new EntityNotFoundException("The custom query '"+query.getClass().getSimpleName()+"' for entity '" + clazz.getSimpleName() + "' didnt brought any results");
 		return entities;
 	}
 	
+	/**
+	 * Execute the custom query on its own connection
+	 */
+	private List<T> performQuery(CustomQuery query){
+		try{
+			begin();
+			return query.perform(getEntityManager(), getEntityType());
+		} finally {
+			close();
+		}
+	}
+	
 	/**
 	 * Performs a hql query execution
+	 * <p>When handling the connection, the results may be served from the {@link QueryCache}
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public List<T> hqlQuery(String hql, Integer firstResult, Integer maxResults, boolean handleConnection) throws RepositoryException, EntityNotFoundException {
 		if(!handleConnection && (!isEntityManagerOpen() || !isTransactionActive()))
 			throw new IllegalStateException("The connection/transaction that is being handled by '"+getClass()+"' has been closed !");
 		List<T> entities = null;
 		try {
+			//Queries inside a caller transaction may see its uncommitted writes, so they are never cached
 			if(handleConnection)
-				begin();
-			hql = preResolve(hql);
-			Query query = getEntityManager().createQuery(hql,getEntityType());
-			if (firstResult > 0)
-				query.setFirstResult(firstResult);
-			if (maxResults > 0)
-				query.setMaxResults(maxResults);
-			entities = query.getResultList();
+				entities = QueryCache.getInstance().get(getEntityType(), hql, firstResult, maxResults,
+						() -> executeQuery(preResolve(hql), null, getEntityType(), firstResult, maxResults, true));
+			else
+				entities = executeQuery(preResolve(hql), null, getEntityType(), firstResult, maxResults, false);
 		} catch (Exception e) {
 			String msg = "An unexpected error occured while executing the HQL: '" + hql + "' with an row limit of '" + maxResults + "' and first result '" + firstResult + "': "+e.getMessage();
 			log.error(msg, e);
 			throw new RepositoryException(msg, e);
-		} finally {
-			if(handleConnection)
-				close();
 		}
 		if (entities == null || entities.size() == 0)
 			throw new EntityNotFoundException("The query execution didn't brought any results");
 		return entities;
 	}
 	
+	/**
+	 * Execute the resolved hql query
+	 */
+	private <R> List<R> executeQuery(String hql, Map<String, ?> params, Class<R> resultType, Integer firstResult, Integer maxResults, boolean handleConnection) {
+		try {
+			if(handleConnection)
+				begin();
+			return getResultList(getEntityManager().createQuery(hql, resultType), params, firstResult, maxResults);
+		} finally {
+			if(handleConnection)
+				close();
+		}
+	}
+	
+	/**
+	 * Binds the parameters and the paging window, collecting the results
+	 */
+	private <R> List<R> getResultList(TypedQuery<R> query, Map<String, ?> params, Integer firstResult, Integer maxResults) {
+		if (params != null)
+			for (Map.Entry<String, ?> param : params.entrySet())
+				query.setParameter(param.getKey(), param.getValue());
+		if (firstResult != null && firstResult > 0)
+			query.setFirstResult(firstResult);
+		if (maxResults != null && maxResults > 0)
+			query.setMaxResults(maxResults);
+		return query.getResultList();
+	}
+	
 	@Override
 	public List<T> hqlQuery(String hql, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
 		return hqlQuery(hql, firstResult, maxResults, true);
@@ -236,6 +463,271 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 		return hqlQuery(hql).get(0);
 	}
 	
+	@Override
+	public List<T> hqlQuery(String hql, Map<String, ?> params, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		return hqlQuery(hql, params, getEntityType(), firstResult, maxResults);
+	}
+	
+	@Override
+	public List<T> hqlQuery(String hql, Map<String, ?> params) throws RepositoryException, EntityNotFoundException {
+		return hqlQuery(hql, params, 0, 0);
+	}
+	
+	/**
+	 * Performs a parameterized hql query execution
+	 * <p>The query functions of the template are resolved once, and the results may be served from the {@link QueryCache}
+	 */
+	@Override
+	public <R> List<R> hqlQuery(String hql, Map<String, ?> params, Class<R> resultType, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		List<R> results = null;
+		try {
+			results = QueryCache.getInstance().get(getEntityType(), hql, params, resultType, toInt(firstResult), toInt(maxResults),
+					() -> executeQuery(preResolve(hql), params, resultType, firstResult, maxResults, true));
+		} catch (Exception e) {
+			String msg = "An unexpected error occured while executing the HQL: '" + hql + "' with the parameters " + params + ", an row limit of '" + maxResults + "' and first result '" + firstResult + "': "+e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		}
+		if (results == null || results.size() == 0)
+			throw new EntityNotFoundException("The query execution didn't brought any results");
+		return results;
+	}
+	
+	@Override
+	public T hqlQuerySingleResult(String hql, Map<String, ?> params) throws RepositoryException, EntityNotFoundException {
+		return hqlQuery(hql, params, 0, 1).get(0);
+	}
+	
+	/**
+	 * Registers the query template on the entity-manager factory
+	 * <p>The query functions are resolved before the registration
+	 */
+	@Override
+	public void registerNamedQuery(String name, String hql) throws RepositoryException {
+		EntityManager em = null;
+		try {
+			em = createEntityManager();
+			emf.addNamedQuery(name, em.createQuery(preResolve(hql)));
+		} catch (Exception e) {
+			String msg = "Couldn't register the named query '" + name + "' for entity '" + getEntityName() + "': " + e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		} finally {
+			if (em != null)
+				em.close();
+		}
+	}
+	
+	/**
+	 * Performs a named query execution
+	 * <p>The results may be served from the {@link QueryCache}, enabled by the query name
+	 */
+	@Override
+	public List<T> namedQuery(String name, Map<String, ?> params, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		List<T> entities = null;
+		try {
+			entities = QueryCache.getInstance().get(getEntityType(), name, params, toInt(firstResult), toInt(maxResults), () -> {
+				try {
+					begin();
+					return getResultList(getEntityManager().createNamedQuery(name, getEntityType()), params, firstResult, maxResults);
+				} finally {
+					close();
+				}
+			});
+		} catch (Exception e) {
+			String msg = "An unexpected error occured while executing the named query '" + name + "' with the parameters " + params + ": " + e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		}
+		if (entities == null || entities.size() == 0)
+			throw new EntityNotFoundException("The named query '" + name + "' didn't brought any results");
+		return entities;
+	}
+	
+	private static int toInt(Integer value) {
+		return value != null ? value : 0;
+	}
+	
+	/**
+	 * Opens a forward-only cursor over all the entities
+	 */
+	@Override
+	public ScrollIterator<T> scroll() throws RepositoryException {
+		return scroll("from " + getEntityName());
+	}
+	
+	/**
+	 * Opens a forward-only cursor over the hql query results
+	 * <p>The cursor holds its own connection until it's closed
+	 */
+	@Override
+	public ScrollIterator<T> scroll(String hql) throws RepositoryException {
+		EntityManager manager = null;
+		try {
+			manager = createEntityManager();
+			try {
+				//Some drivers only honor the fetch size inside a transaction
+				manager.getTransaction().begin();
+			}
+			catch (IllegalStateException e) {
+				//JTA entity manager, transaction is handled by the container
+			}
+			org.hibernate.Query query = manager.unwrap(Session.class).createQuery(preResolve(hql));
+			query.setFetchSize(fetchSize);
+			query.setReadOnly(true);
+			ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+			return new ScrollIterator<T>(manager, results, getEntityType(), fetchSize);
+		} 
+		catch (Exception e) {
+			if (manager != null && manager.isOpen())
+				manager.close();
+			String msg = "An unexpected error occured while opening a cursor for the HQL: '" + hql + "': " + e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		}
+	}
+	
+	/**
+	 * Streams all the entities through a forward-only cursor
+	 */
+	@Override
+	public Stream<T> stream() throws RepositoryException {
+		return scroll().stream();
+	}
+	
+	/**
+	 * Streams the hql query results through a forward-only cursor
+	 */
+	@Override
+	public Stream<T> stream(String hql) throws RepositoryException {
+		return scroll(hql).stream();
+	}
+	
+	/**
+	 * Gets the lowest and highest ids of the entity, used to partition batch jobs
+	 * @return {lowest, highest}, or null if there are no entities
+	 * @throws RepositoryException - If the id is not numeric or the query failed
+	 */
+	@SuppressWarnings("unchecked")
+	public long[] getIdRange() throws RepositoryException {
+		EntityManager manager = null;
+		try {
+			manager = createEntityManager();
+			SingularAttribute<? super T, ?> id = getNumericId();
+			CriteriaBuilder builder = manager.getCriteriaBuilder();
+			CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+			Path<Number> path = criteria.from(getEntityType()).get((SingularAttribute<? super T, Number>) id);
+			criteria.multiselect(builder.min(path), builder.max(path));
+			Object[] range = manager.createQuery(criteria).getSingleResult();
+			if (range[0] == null)
+				return null;
+			return new long[] { ((Number) range[0]).longValue(), ((Number) range[1]).longValue() };
+		} catch (RepositoryException e) {
+			throw e;
+		} catch (Exception e) {
+			String msg = "Couldn't resolve the id range of the entity '" + getEntityName() + "': " + e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		} finally {
+			if (manager != null && manager.isOpen())
+				manager.close();
+		}
+	}
+	
+	/**
+	 * Gets the lowest id greater than the given one, used to skip the empty gaps of sparse ids
+	 * @param after - The id to start after, exclusive
+	 * @return The next id, or null if there are no more entities
+	 * @throws RepositoryException - If the id is not numeric or the query failed
+	 */
+	@SuppressWarnings("unchecked")
+	public Long getNextId(long after) throws RepositoryException {
+		EntityManager manager = null;
+		try {
+			manager = createEntityManager();
+			SingularAttribute<? super T, ?> id = getNumericId();
+			CriteriaBuilder builder = manager.getCriteriaBuilder();
+			CriteriaQuery<Number> criteria = builder.createQuery(Number.class);
+			Path<Number> path = criteria.from(getEntityType()).get((SingularAttribute<? super T, Number>) id);
+			criteria.select(builder.min(path)).where(builder.gt(path, (Number) toId(after, id.getJavaType())));
+			Number next = manager.createQuery(criteria).getSingleResult();
+			return next != null ? next.longValue() : null;
+		} catch (RepositoryException e) {
+			throw e;
+		} catch (Exception e) {
+			String msg = "Couldn't resolve the id after '" + after + "' of the entity '" + getEntityName() + "': " + e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		} finally {
+			if (manager != null && manager.isOpen())
+				manager.close();
+		}
+	}
+	
+	/**
+	 * Processes the entities with id between from and to, ordered by id, on a single transaction
+	 * <p>Uses its own entity-manager, apart from the thread one, so partitions can be processed in parallel
+	 * @param from - The lowest id, inclusive
+	 * @param to - The highest id, inclusive
+	 * @param processor - Processes the entities inside the transaction
+	 * @return Number of entities processed
+	 * @throws RepositoryException - If the chunk failed and was rolled back
+	 */
+	@SuppressWarnings("unchecked")
+	public int processRange(long from, long to, ChunkProcessor<T> processor) throws RepositoryException {
+		EntityManager manager = null;
+		try {
+			manager = createEntityManager();
+			SingularAttribute<? super T, ?> id = getNumericId();
+			Class<?> idType = id.getJavaType();
+			CriteriaBuilder builder = manager.getCriteriaBuilder();
+			CriteriaQuery<T> criteria = builder.createQuery(getEntityType());
+			Root<T> root = criteria.from(getEntityType());
+			Path<Comparable<Object>> path = root.get((SingularAttribute<? super T, Comparable<Object>>) id);
+			criteria.select(root).where(builder.greaterThanOrEqualTo(path, (Comparable<Object>) toId(from, idType)),
+					builder.lessThanOrEqualTo(path, (Comparable<Object>) toId(to, idType))).orderBy(builder.asc(path));
+			manager.getTransaction().begin();
+			List<T> entities = manager.createQuery(criteria).getResultList();
+			processor.process(entities, manager);
+			manager.getTransaction().commit();
+			return entities.size();
+		} catch (RepositoryException e) {
+			throw e;
+		} catch (Exception e) {
+			if (manager != null && manager.isOpen() && manager.getTransaction().isActive())
+				manager.getTransaction().rollback();
+			String msg = "Couldn't process the entities '" + getEntityName() + "' with id on [" + from + ", " + to + "]: " + e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		} finally {
+			if (manager != null && manager.isOpen())
+				manager.close();
+			invalidateQueries();
+			invalidateEntities();
+		}
+	}
+	
+	/**
+	 * Resolves the id attribute, which must be an integral number to be partitioned
+	 */
+	private SingularAttribute<? super T, ?> getNumericId() throws RepositoryException {
+		EntityType<T> type = emf.getMetamodel().entity(getEntityType());
+		SingularAttribute<? super T, ?> id = type.getId(type.getIdType().getJavaType());
+		Class<?> idType = id.getJavaType();
+		if (idType != Long.class && idType != long.class && idType != Integer.class && idType != int.class
+				&& idType != Short.class && idType != short.class)
+			throw new RepositoryException("The id of the entity '" + getEntityName() + "' is not an integral number: " + idType.getName());
+		return id;
+	}
+	
+	private static Object toId(long value, Class<?> idType) {
+		if (idType == Integer.class || idType == int.class)
+			return (int) Math.max(Math.min(value, Integer.MAX_VALUE), Integer.MIN_VALUE);
+		if (idType == Short.class || idType == short.class)
+			return (short) Math.max(Math.min(value, Short.MAX_VALUE), Short.MIN_VALUE);
+		return value;
+	}
+	
 	/**
 	 * Saves the entity if its a new one
 	 * Updates if already exist
@@ -265,6 +757,8 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 		} 
 		finally {
 			close();
+			invalidateQueries();
+			invalidateEntity(entity);
 		}
 	}
 	
@@ -299,9 +793,7 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 	public void delete(T entity) throws RepositoryException {
 		try{
 			begin();
-			if(!getEntityManager().contains(entity))
-				entity = getEntityManager().merge(entity);
-			getEntityManager().remove(entity);
+			remove(entity);
 			commit();
 		}
 		catch(Exception e){
@@ -313,7 +805,133 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 		}
 		finally{
 			close();
+			invalidateQueries();
+			invalidateEntity(entity);
+		}
+	}
+	
+	/**
+	 * Remove the entity, attaching it first if needed
+	 * @param entity
+	 */
+	private void remove(T entity){
+		if(!getEntityManager().contains(entity))
+			entity = getEntityManager().merge(entity);
+		getEntityManager().remove(entity);
+	}
+	
+	/**
+	 * Saves or updates all the entities on a single transaction
+	 */
+	@Override
+	public BatchReport saveAll(Collection<T> entities) throws RepositoryException, EntityExistsException {
+		return saveAll(entities != null ? entities.iterator() : Collections.<T>emptyIterator());
+	}
+	
+	/**
+	 * Saves or updates all the entities on a single transaction, consuming the iterator chunk by chunk
+	 */
+	@Override
+	public BatchReport saveAll(Iterator<T> entities) throws RepositoryException, EntityExistsException {
+		return writeAll(entities, false);
+	}
+	
+	/**
+	 * Deletes all the entities on a single transaction
+	 */
+	@Override
+	public BatchReport deleteAll(Collection<T> entities) throws RepositoryException {
+		try {
+			return writeAll(entities != null ? entities.iterator() : Collections.<T>emptyIterator(), true);
+		} 
+		catch (EntityExistsException e) {
+			//Constraint violations on deletion are not duplicates
+			throw new RepositoryException(e.getMessage(), e.getCause());
+		}
+	}
+	
+	/**
+	 * Writes the entities on a single transaction
+	 * <p>The persistence context is flushed and cleared every chunk, keeping the memory bounded
+	 * and letting the JDBC driver batch the statements
+	 * @param entities
+	 * @param removal - True to delete, False to save/update
+	 * @return Report of the chunks
+	 */
+	private BatchReport writeAll(Iterator<T> entities, boolean removal) throws RepositoryException, EntityExistsException {
+		String operation = removal ? "delete" : "save/update";
+		BatchReport report = new BatchReport(batchSize);
+		int index = 0;
+		int chunkStart = 0;
+		boolean flushing = false;
+		try {
+			beginTransaction();
+			long chunkBegin = System.nanoTime();
+			while (entities.hasNext()) {
+				T entity = entities.next();
+				if(removal)
+					remove(entity);
+				else
+					mergeOrPersist(entity);
+				index++;
+				if(index - chunkStart == batchSize){
+					flushing = true;
+					flushChunk(report, chunkStart, index, chunkBegin);
+					flushing = false;
+					chunkStart = index;
+					chunkBegin = System.nanoTime();
+				}
+			}
+			if(index > chunkStart){
+				flushing = true;
+				flushChunk(report, chunkStart, index, chunkBegin);
+				flushing = false;
+			}
+			commit();
+		}
+		catch(Exception e){
+			rollback();
+			int failedIndex = flushing ? chunkStart : index;
+			String position = flushing ? "on the chunk [" + chunkStart + ", " + index + ")" : "at index " + index;
+			if(isConstraintViolation(e)){
+				String msg = "The batch " + operation + " of '" + getEntityName() + "' violated a constraint " + position;
+				log.error(msg, e);
+				throw new EntityExistsException(msg, e, failedIndex);
+			}
+			String msg = "An unexpected error has occurred on the batch " + operation + " of '" + getEntityType().getSimpleName() + "' " + position + ": " + e.getMessage();
+			log.error(msg, e);
+			throw new RepositoryException(msg, e);
+		}
+		finally {
+			close();
+			invalidateQueries();
+			invalidateEntities();
 		}
+		log.debug("Batch " + operation + " of '" + getEntityType().getSimpleName() + "': " + report);
+		return report;
+	}
+	
+	/**
+	 * Flush the pending statements and detach the chunk entities
+	 */
+	private void flushChunk(BatchReport report, int chunkStart, int chunkEnd, long chunkBegin) {
+		getEntityManager().flush();
+		getEntityManager().clear();
+		report.addChunk(chunkEnd - chunkStart, System.nanoTime() - chunkBegin);
+		if(log.isTraceEnabled())
+			log.trace("Chunk [" + chunkStart + ", " + chunkEnd + ") flushed in " + report.getChunkTimes().get(report.getChunkTimes().size() - 1) + "ms");
+	}
+	
+	/**
+	 * Check if the failure, or one of its causes, is a constraint violation
+	 * @param e
+	 * @return True or False
+	 */
+	private boolean isConstraintViolation(Throwable e){
+		for(Throwable cause = e; cause != null; cause = cause.getCause())
+			if(cause instanceof ConstraintViolationException)
+				return true;
+		return false;
 	}
 	
 	/**
@@ -322,6 +940,7 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 	 * @return
 	 * @throws RepositoryException
 	 */
+	@Override
 	public int hqlDelete(String hql) throws RepositoryException{
 		int rows = 0;
 		try{
@@ -338,10 +957,43 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 		}
 		finally{
 			close();
+			//The deletion may target any entity
+			QueryCache.getInstance().invalidateAll();
+			CachingRepository.invalidateAll();
 		}
 		return rows;
 	}
 	
+	/**
+	 * Invalidates the cached query results of the entity
+	 */
+	protected void invalidateQueries() {
+		QueryCache.getInstance().invalidate(getEntityType(), getEntityName());
+	}
+	
+	/**
+	 * Invalidates every cached instance of the entity, see {@link EntityCache}
+	 */
+	protected void invalidateEntities() {
+		CachingRepository.invalidateAll(getEntityType());
+	}
+	
+	/**
+	 * Invalidates the cached instance of the entity, or all of them if its id can't be resolved
+	 * @param entity
+	 */
+	private void invalidateEntity(T entity) {
+		Serializable id = null;
+		try {
+			if (entity != null)
+				id = getIdentifier(entity);
+		}
+		catch (RuntimeException e) {
+			log.debug("Couldn't resolve the id of '" + getEntityName() + "': " + e.getMessage());
+		}
+		CachingRepository.invalidate(getEntityType(), id);
+	}
+	
 	/**
 	 * Initialize connection
 	 */
@@ -355,16 +1007,28 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 	protected void begin(boolean transactional) {
 		if (!isEntityManagerOpen() && (transactional && !isTransactionActive())) {
 			try {
-				EntityManager em = emf.createEntityManager();
+				EntityManager em = createEntityManager();
 				setEntityManager(em);
 				if(transactional)
 					em.getTransaction().begin();
 			} catch (PersistenceException e) {
+				// Without a lease every following call would fail on a missing entity-manager
+				if (e.getCause() instanceof ConnectionException)
+					throw e;
 				log.warn("Couldn't open and begin the transaction: "+e.getMessage(), e);
 			}
 		}
 	}
 	
+	/**
+	 * Initialize connection making sure that a transaction is active
+	 */
+	protected void beginTransaction() {
+		begin(true);
+		if (isEntityManagerOpen() && !isTransactionActive())
+			getEntityManager().getTransaction().begin();
+	}
+	
 	/**
 	 * Commit the current transaction
 	 */
@@ -411,26 +1075,12 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 	
 	/**
 	 * Resolve HQL custom functions
+	 * <p>Each query is compiled once per entity, see {@link QueryTemplate}
 	 * @param hql
 	 * @return
 	 */
-	//TODO: Implementar suporte a atributos
 	private String preResolve(String hql){
-		String finalHql = hql;
-		if(StringUtil.hasText(hql)){
-			for(QueryFunction function : QueryFunction.values()){
-				int functionIndex = hql.indexOf(function.getFunctionIdentifier());
-				if(functionIndex > -1){
-					try{
-						finalHql = function.getStrategy().handle(hql, functionIndex, getEntityType());
-					}
-					catch(Exception e){
-						log.warn("Couldn't pre resolve the function '"+function.toString()+"' on '"+hql+"': "+e.getMessage());
-					}
-				}
-			}
-		}
-		return finalHql;
+		return QueryTemplate.compile(hql, getEntityType()).getQuery();
 	}
 	
 	/**
@@ -442,60 +1092,41 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 	private Map<String, Object> preResolve(T entity){
 		Map<String, Object> postValues = new HashMap<String, Object>();
 		try{
-			for(Method method : entity.getClass().getMethods()){
-				//Retrieve the field type
-				Class<?> returnType = method.getReturnType();
+			EntityMetadata metadata = EntityMetadata.of(entity.getClass());
+			
+			for(PropertyAccessor property : metadata.getRandomProperties()){
+				Random random = property.getRandom();
 				
-				//Retrieve the annotations
-				Random random = method.getAnnotation(Random.class);
-				Encrypt encrypt = method.getAnnotation(Encrypt.class);
+				//Get the actual value
+				String value = (String) property.get(entity);
 				
-				if(random != null){
+				//If there is no value, a new randomized one will be generated
+				if(!StringUtil.hasText(value)){
 					
-					if(returnType.equals(String.class)){
-						//Retrieve the setter method
-						Method setter = retrieveSetterMethod(entity, method, returnType);
-						
-						//Get the actual value
-						String value = (String) method.invoke(entity);
-						
-						//If there is no value, a new randomized one will be generated
-						if(!StringUtil.hasText(value)){
-							
-							//Randomize a new value
-							value = RandomicGenerator.generatePswd(random.minLength(), random.maxLength(), random.upperCaseChars(), random.numericChars(), random.specialChars());
-							
-							//Verifiy if should mantain the value on object
-							if(random.mantainOnInsert()){
-								postValues.put("random", value);
-							}
-						}
-						
-						//Sets the encrypted value
-						setter.invoke(entity,value);
-					}
-				}
-				
-				if(encrypt != null){
+					//Randomize a new value
+					value = RandomicGenerator.generatePswd(random.minLength(), random.maxLength(), random.upperCaseChars(), random.numericChars(), random.specialChars());
 					
-					if(returnType.equals(String.class)){
-						
-						//Retrieve the setter method
-						Method setter = retrieveSetterMethod(entity, method, returnType);
-						
-						//Get the value and encrypt it
-						String value = (String) method.invoke(entity);
-						String encrypted = value;
-						
-						//Check if its already encrypted
-						if(!value.matches("^[a-f0-9]{32}$"))
-							encrypted = new Encrypter(encrypt.value()).encrypt(value);
-						
-						//Sets the encrypted value
-						setter.invoke(entity,encrypted);
+					//Verifiy if should mantain the value on object
+					if(random.mantainOnInsert()){
+						postValues.put(property.getName(), value);
 					}
 				}
 				
+				//Sets the value
+				property.set(entity, value);
+			}
+			
+			for(PropertyAccessor property : metadata.getEncryptedProperties()){
+				
+				//Get the value and encrypt it
+				String value = (String) property.get(entity);
+				if(value == null)
+					continue;
+				
+				//Check if its already encrypted
+				Encrypter encrypter = Encrypter.getInstance(property.getEncrypt().value());
+				if(!encrypter.isEncrypted(value))
+					property.set(entity, encrypter.encrypt(value));
 			}
 		}
 		catch(Exception e){
@@ -513,81 +1144,71 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 	//TODO: Implementar suporte a atributos
 	private void postResolve(T entity,T generated, Map<String, Object> postValues){
 		try{
-			for(Method method : entity.getClass().getMethods()){
-				
-				//Get the return type
-				Class<?> returnType = method.getReturnType();
-				
-				//Resolving generated VERSION
-				if(method.getAnnotation(Version.class) != null){
-					//Retrieve the setter method
-					Method setter = retrieveSetterMethod(entity, method, returnType);
-					
-					//Sets the version
-					setter.invoke(entity,method.invoke(generated));
-				}
-				
-				//Resolving generated ID
-				if(method.getAnnotation(Id.class) != null){
-					//Retrieve generated field value
-					Object value = method.invoke(generated);
-					
-					//Check if its not null to set it properly
-					if(value != null){
-						//Retrieve the setter method
-						Method setter = retrieveSetterMethod(entity, method, returnType);
-						
-						//Invoke the setter
-						setter.invoke(entity, method.invoke(generated));
-					}
-					//If null, then inverse set it
-					else{
-						//Retrieve the setter method
-						Method setter = retrieveSetterMethod(generated, method, returnType);
-						
-						//Invoke the setter
-						setter.invoke(generated, method.invoke(entity));
-					}
-						
-				}
+			EntityMetadata metadata = EntityMetadata.of(entity.getClass());
+			
+			//Resolving generated VERSION
+			for(PropertyAccessor property : metadata.getVersionProperties())
+				property.set(entity, property.get(generated));
+			
+			//Resolving generated ID
+			for(PropertyAccessor property : metadata.getIdProperties()){
+				//Retrieve generated field value
+				Object value = property.get(generated);
 				
-				//Resolving mantained random value
-				if(method.getAnnotation(Random.class) != null){
-					Random random = method.getAnnotation(Random.class);
-					if(random.mantainOnInsert()){
-						String randomValue = (String) postValues.get("random");
-						if(StringUtil.hasText(randomValue)){
-							//Retrieve the setter method
-							Method setter = retrieveSetterMethod(entity, method, returnType);
-							
-							//Invoke the setter
-							setter.invoke(entity, randomValue);
-						}
-					}
-				}
+				//Check if its not null to set it properly
+				if(value != null)
+					property.set(entity, value);
+				//If null, then inverse set it
+				else
+					property.set(generated, property.get(entity));
+			}
+			
+			//Resolving mantained random value
+			for(PropertyAccessor property : metadata.getRandomProperties()){
+				String randomValue = (String) postValues.get(property.getName());
+				if(StringUtil.hasText(randomValue))
+					property.set(entity, randomValue);
 			}
 		}
 		catch(Exception e){
 			log.warn("Couldn't post resolve the entity '"+getEntityType().getSimpleName()+"': "+e.getMessage());
 		}
 	}
-
+	
 	/**
-	 * Retrieve entity setter method
-	 * @param entity
-	 * @param method
-	 * @param returnType
-	 * @return
-	 * @throws NoSuchMethodException
-	 */
-	private Method retrieveSetterMethod(T entity, Method method, Class<?> returnType) throws NoSuchMethodException {
-		Method setter = entity.getClass().getMethod(method.getName().replace("get","set"), returnType);
-		//Grant acess
-		if(!method.isAccessible())
-			method.setAccessible(true);
-		if(!setter.isAccessible())
-			setter.setAccessible(true);
-		return setter;
+	 * Gets the number of rows fetched per round trip when scrolling
+	 * <p>The persistence context of the cursor is also cleared every fetch size rows
+	 * @return Fetch size
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+	
+	/**
+	 * Sets the number of rows fetched per round trip when scrolling
+	 * @param fetchSize
+	 */
+	public void setFetchSize(int fetchSize) {
+		if(fetchSize < 1)
+			throw new IllegalArgumentException("The fetch size must be greater than zero");
+		this.fetchSize = fetchSize;
+	}
+	
+	/**
+	 * Resolves the chunk size from the factory JDBC batching configuration
+	 * @param factory
+	 * @return Chunk size
+	 */
+	private static int resolveBatchSize(EntityManagerFactory factory) {
+		Object value = factory.getProperties().get(EntityManagerFactoryBuilder.JDBC_BATCH_SIZE);
+		try {
+			if(value != null && Integer.parseInt(value.toString().trim()) > 0)
+				return Integer.parseInt(value.toString().trim());
+		} 
+		catch (NumberFormatException e) {
+			log.warn("Invalid '" + EntityManagerFactoryBuilder.JDBC_BATCH_SIZE + "' value: " + value);
+		}
+		return DEFAULT_BATCH_SIZE;
 	}
 	
 	/**
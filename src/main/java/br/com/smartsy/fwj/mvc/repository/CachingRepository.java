@@ -0,0 +1,352 @@
+package br.com.smartsy.fwj.mvc.repository;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+
+import br.com.smartsy.fwj.cache.CacheStatistics;
+import br.com.smartsy.fwj.cache.LruCache;
+import br.com.smartsy.fwj.exception.EntityExistsException;
+import br.com.smartsy.fwj.exception.EntityNotFoundException;
+import br.com.smartsy.fwj.exception.RepositoryException;
+import br.com.smartsy.fwj.persistence.BatchReport;
+import br.com.smartsy.fwj.persistence.CustomQuery;
+import br.com.smartsy.fwj.persistence.KeysetPage;
+import br.com.smartsy.fwj.persistence.ScrollIterator;
+import br.com.smartsys.fwj.annotation.EntityCache;
+
+/**
+ * Read-through cache decorator for {@link Repository#get(Serializable)}
+ * <p>Enabled for entities annotated with {@link EntityCache}. Every write made through the decorator
+ * invalidates the affected entries. {@link AbstractRepository} reads through and invalidates the same caches by itself,
+ * so it is never decorated: the decorator is meant for the other repository implementations.
+ * <p><b>Warning:</b> Cached instances are shared between callers, so it should be used for reference entities
+ * @author Vagner
+ *
+ * @param <T>
+ *            - The entity type
+ */
+public class CachingRepository<T> implements Repository<T> {
+
+	private static final Logger log = Logger.getLogger(CachingRepository.class);
+
+	/**
+	 * One cache per entity type, shared by every decorator of the same entity
+	 */
+	private static final ConcurrentMap<Class<?>, LruCache<String, Object>> caches = new ConcurrentHashMap<>();
+
+	private final Repository<T> repository;
+	private final LruCache<String, Object> cache;
+
+	private CachingRepository(Repository<T> repository, LruCache<String, Object> cache) {
+		this.repository = repository;
+		this.cache = cache;
+	}
+
+	/**
+	 * Decorates the repository if its entity is annotated with {@link EntityCache}
+	 * @param repository - The repository to be decorated
+	 * @return The caching decorator, or the repository itself if the entity is not cacheable or it already caches
+	 */
+	public static <T> Repository<T> decorate(Repository<T> repository) {
+		if (repository == null || repository instanceof CachingRepository || repository instanceof AbstractRepository)
+			return repository;
+		LruCache<String, Object> cache = getCache(repository.getEntityType());
+		if (cache == null)
+			return repository;
+		return new CachingRepository<T>(repository, cache);
+	}
+
+	/**
+	 * Gets the cache of the entity, created on the first call
+	 * @param type - The entity type
+	 * @return The cache, or null if the entity is not annotated with {@link EntityCache}
+	 */
+	static LruCache<String, Object> getCache(Class<?> type) {
+		LruCache<String, Object> cache = caches.get(type);
+		if (cache != null)
+			return cache;
+		EntityCache settings = type.getAnnotation(EntityCache.class);
+		if (settings == null)
+			return null;
+		return caches.computeIfAbsent(type, t -> new LruCache<String, Object>(settings.maxSize(), settings.ttl(), settings.unit()));
+	}
+
+	/**
+	 * Gets the cache statistics of the entity
+	 * @param type - The entity type
+	 * @return CacheStatistics, or null if the entity is not being cached
+	 */
+	public static CacheStatistics getStatistics(Class<?> type) {
+		LruCache<String, Object> cache = caches.get(type);
+		return cache != null ? cache.getStatistics() : null;
+	}
+
+	/**
+	 * Invalidate every cached instance of the entity(e.g: after a change made outside the decorator)
+	 * @param type - The entity type
+	 */
+	public static void invalidateAll(Class<?> type) {
+		LruCache<String, Object> cache = caches.get(type);
+		if (cache != null)
+			cache.invalidateAll();
+	}
+
+	/**
+	 * Invalidate the cached instance of the entity, or all of them if the id is unknown
+	 * @param type - The entity type
+	 * @param id - The entity id
+	 */
+	public static void invalidate(Class<?> type, Serializable id) {
+		LruCache<String, Object> cache = caches.get(type);
+		if (cache == null)
+			return;
+		if (id != null)
+			cache.invalidate(key(id));
+		else
+			cache.invalidateAll();
+	}
+
+	/**
+	 * Invalidate every cached instance of every entity(e.g: after a HQL deletion)
+	 */
+	public static void invalidateAll() {
+		for (LruCache<String, Object> cache : caches.values())
+			cache.invalidateAll();
+	}
+
+	/**
+	 * Gets the decorated repository
+	 * @return Repository
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Repository<T>> E getRepository() {
+		return (E) repository;
+	}
+
+	@Override
+	public String getEntityName() {
+		return repository.getEntityName();
+	}
+
+	@Override
+	public Class<T> getEntityType() {
+		return repository.getEntityType();
+	}
+
+	/**
+	 * Gets the entity from cache, loading it from the repository on a miss
+	 */
+	@Override
+	public T get(final Serializable id) throws RepositoryException, EntityNotFoundException {
+		if (id == null)
+			return repository.get(id);
+		try {
+			return getEntityType().cast(cache.get(key(id), key -> repository.get(id)));
+		}
+		catch (RepositoryException | EntityNotFoundException | RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new RepositoryException("Couldn't load the entity '" + getEntityName() + "' with id '" + id + "': " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public List<T> listAll(Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		return repository.listAll(firstResult, maxResults);
+	}
+
+	@Override
+	public List<T> listAll(Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		return repository.listAll(maxResults);
+	}
+
+	@Override
+	public List<T> listAll() throws RepositoryException, EntityNotFoundException {
+		return repository.listAll();
+	}
+
+	@Override
+	public KeysetPage<T> listPage(String cursor, Integer maxResults) throws RepositoryException {
+		return repository.listPage(cursor, maxResults);
+	}
+
+	@Override
+	public List<T> customQuery(CustomQuery query) throws RepositoryException, EntityNotFoundException {
+		return repository.customQuery(query);
+	}
+
+	@Override
+	public List<T> hqlQuery(String hql, Integer firstResult, Integer maxResults, boolean handleConnection) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuery(hql, firstResult, maxResults, handleConnection);
+	}
+
+	@Override
+	public List<T> hqlQuery(String hql, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuery(hql, firstResult, maxResults);
+	}
+
+	@Override
+	public List<T> hqlQuery(String hql, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuery(hql, maxResults);
+	}
+
+	@Override
+	public List<T> hqlQuery(String hql) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuery(hql);
+	}
+
+	@Override
+	public T hqlQuerySingleResult(String hql) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuerySingleResult(hql);
+	}
+
+	@Override
+	public List<T> hqlQuery(String hql, Map<String, ?> params, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuery(hql, params, firstResult, maxResults);
+	}
+
+	@Override
+	public List<T> hqlQuery(String hql, Map<String, ?> params) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuery(hql, params);
+	}
+
+	@Override
+	public <R> List<R> hqlQuery(String hql, Map<String, ?> params, Class<R> resultType, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuery(hql, params, resultType, firstResult, maxResults);
+	}
+
+	@Override
+	public T hqlQuerySingleResult(String hql, Map<String, ?> params) throws RepositoryException, EntityNotFoundException {
+		return repository.hqlQuerySingleResult(hql, params);
+	}
+
+	@Override
+	public void registerNamedQuery(String name, String hql) throws RepositoryException {
+		repository.registerNamedQuery(name, hql);
+	}
+
+	@Override
+	public List<T> namedQuery(String name, Map<String, ?> params, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException {
+		return repository.namedQuery(name, params, firstResult, maxResults);
+	}
+
+	@Override
+	public ScrollIterator<T> scroll() throws RepositoryException {
+		return repository.scroll();
+	}
+
+	@Override
+	public ScrollIterator<T> scroll(String hql) throws RepositoryException {
+		return repository.scroll(hql);
+	}
+
+	@Override
+	public Stream<T> stream() throws RepositoryException {
+		return repository.stream();
+	}
+
+	@Override
+	public Stream<T> stream(String hql) throws RepositoryException {
+		return repository.stream(hql);
+	}
+
+	@Override
+	public void saveOrUpdate(T entity) throws RepositoryException, EntityExistsException {
+		try {
+			repository.saveOrUpdate(entity);
+		}
+		finally {
+			invalidate(entity);
+		}
+	}
+
+	@Override
+	public void delete(T entity) throws RepositoryException {
+		try {
+			repository.delete(entity);
+		}
+		finally {
+			invalidate(entity);
+		}
+	}
+
+	@Override
+	public int hqlDelete(String hql) throws RepositoryException {
+		try {
+			return repository.hqlDelete(hql);
+		}
+		finally {
+			//The deletion may target any entity
+			invalidateAll();
+		}
+	}
+
+	@Override
+	public BatchReport saveAll(Collection<T> entities) throws RepositoryException, EntityExistsException {
+		try {
+			return repository.saveAll(entities);
+		}
+		finally {
+			cache.invalidateAll();
+		}
+	}
+
+	@Override
+	public BatchReport saveAll(Iterator<T> entities) throws RepositoryException, EntityExistsException {
+		try {
+			return repository.saveAll(entities);
+		}
+		finally {
+			cache.invalidateAll();
+		}
+	}
+
+	@Override
+	public BatchReport deleteAll(Collection<T> entities) throws RepositoryException {
+		try {
+			return repository.deleteAll(entities);
+		}
+		finally {
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Invalidates the entity entry, or the whole cache if its id can't be resolved
+	 * @param entity
+	 */
+	private void invalidate(T entity) {
+		Serializable id = null;
+		if (entity != null && repository instanceof AbstractRepository) {
+			try {
+				id = ((AbstractRepository<T>) repository).getIdentifier(entity);
+			}
+			catch (RuntimeException e) {
+				log.debug("Couldn't resolve the id of '" + getEntityName() + "': " + e.getMessage());
+			}
+		}
+		if (id != null)
+			cache.invalidate(key(id));
+		else
+			cache.invalidateAll();
+	}
+
+	/**
+	 * Normalizes the id, so "1" and 1L hit the same entry
+	 * @param id
+	 * @return Cache key
+	 */
+	static String key(Serializable id) {
+		return String.valueOf(id);
+	}
+
+}
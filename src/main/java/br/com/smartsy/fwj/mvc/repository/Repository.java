@@ -1,12 +1,19 @@
 package br.com.smartsy.fwj.mvc.repository;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import br.com.smartsy.fwj.exception.EntityExistsException;
 import br.com.smartsy.fwj.exception.EntityNotFoundException;
 import br.com.smartsy.fwj.exception.RepositoryException;
+import br.com.smartsy.fwj.persistence.BatchReport;
 import br.com.smartsy.fwj.persistence.CustomQuery;
+import br.com.smartsy.fwj.persistence.KeysetPage;
+import br.com.smartsy.fwj.persistence.ScrollIterator;
 
 /**
  * DAO(Direct Access Object) specification
@@ -23,6 +30,12 @@ public interface Repository<T> {
 	 * @author Vagner
 	 */
 	public String getEntityName();
+	
+	/**
+	 * Resolves the entity class
+	 * @return The entity type
+	 */
+	public Class<T> getEntityType();
 
 	/**
 	 * Retrieves an entity by its id
@@ -82,6 +95,21 @@ public interface Repository<T> {
 	 */
 	public abstract List<T> listAll() throws RepositoryException, EntityNotFoundException;
 	
+	/**
+	 * Identify a page of occurencies of the current entity on the database,
+	 * using keyset(seek) pagination over the entity id or declared sort key
+	 * 
+	 * @param cursor
+	 *            - The cursor returned by the previous page, or null for the first page
+	 * @param maxResults
+	 *            - Maximum number of rows to be collected
+	 * @return The page and the cursor for the next one
+	 * @throws RepositoryException
+	 *             - If an error occurs during the operation or the cursor is invalid
+	 * @author Vagner
+	 */
+	public abstract KeysetPage<T> listPage(String cursor, Integer maxResults) throws RepositoryException;
+	
 	/**
 	 * Executes a custom query
 	 * @param query
@@ -169,6 +197,156 @@ public interface Repository<T> {
 	 */
 	public abstract T hqlQuerySingleResult(String hql) throws RepositoryException, EntityNotFoundException;
 	
+	/**
+	 * Execute hql query on the database binding the named parameters
+	 * <p>Values must be bound as parameters(e.g: "where e.name = :name") instead of concatenated,
+	 * so the query plan is reused between calls
+	 * 
+	 * @param hql
+	 *            - The query template to be executed
+	 * @param params
+	 *            - The named parameters values
+	 * @param firstResult
+	 *            - The first row index
+	 * @param maxResults
+	 *            - Maximum number of rows to be collected, zero for all
+	 * @return The hql query result
+	 * @throws RepositoryException
+	 *             - If an error occurs during the operation
+	 * @throws EntityNotFoundException
+	 * 			   - If the entity cannot be found
+	 * @author Vagner
+	 */
+	public abstract List<T> hqlQuery(String hql, Map<String, ?> params, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException;
+	
+	/**
+	 * Execute hql query on the database binding the named parameters
+	 * 
+	 * @param hql
+	 *            - The query template to be executed
+	 * @param params
+	 *            - The named parameters values
+	 * @return The hql query result
+	 * @throws RepositoryException
+	 *             - If an error occurs during the operation
+	 * @throws EntityNotFoundException
+	 * 			   - If the entity cannot be found
+	 * @author Vagner
+	 */
+	public abstract List<T> hqlQuery(String hql, Map<String, ?> params) throws RepositoryException, EntityNotFoundException;
+	
+	/**
+	 * Execute hql query on the database binding the named parameters, for projections of other types
+	 * (e.g: "select count(e) from Entity e where e.status = :status")
+	 * 
+	 * @param hql
+	 *            - The query template to be executed
+	 * @param params
+	 *            - The named parameters values
+	 * @param resultType
+	 *            - The type of each row
+	 * @param firstResult
+	 *            - The first row index
+	 * @param maxResults
+	 *            - Maximum number of rows to be collected, zero for all
+	 * @return The hql query result
+	 * @throws RepositoryException
+	 *             - If an error occurs during the operation
+	 * @throws EntityNotFoundException
+	 * 			   - If the query didn't bring any results
+	 * @author Vagner
+	 */
+	public abstract <R> List<R> hqlQuery(String hql, Map<String, ?> params, Class<R> resultType, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException;
+	
+	/**
+	 * Execute the hql query on the database binding the named parameters, returning the first row
+	 * 
+	 * @param hql
+	 *            - The query template to be executed
+	 * @param params
+	 *            - The named parameters values
+	 * @return The result first row
+	 * @throws RepositoryException
+	 *             - If an error occurs during the operation
+	 * @throws EntityNotFoundException
+	 * 			   - If the entity cannot be found
+	 * @author Vagner
+	 */
+	public abstract T hqlQuerySingleResult(String hql, Map<String, ?> params) throws RepositoryException, EntityNotFoundException;
+	
+	/**
+	 * Registers the hql query template under a name, compiling it once for the whole persistence unit
+	 * 
+	 * @param name
+	 *            - The query name
+	 * @param hql
+	 *            - The query template
+	 * @throws RepositoryException
+	 *             - If the query is not valid
+	 * @author Vagner
+	 */
+	public abstract void registerNamedQuery(String name, String hql) throws RepositoryException;
+	
+	/**
+	 * Execute a named query on the database binding the named parameters
+	 * 
+	 * @param name
+	 *            - The name of a query registered by {@link #registerNamedQuery(String, String)} or declared on the entity
+	 * @param params
+	 *            - The named parameters values
+	 * @param firstResult
+	 *            - The first row index
+	 * @param maxResults
+	 *            - Maximum number of rows to be collected, zero for all
+	 * @return The query result
+	 * @throws RepositoryException
+	 *             - If an error occurs during the operation
+	 * @throws EntityNotFoundException
+	 * 			   - If the entity cannot be found
+	 * @author Vagner
+	 */
+	public abstract List<T> namedQuery(String name, Map<String, ?> params, Integer firstResult, Integer maxResults) throws RepositoryException, EntityNotFoundException;
+	
+	/**
+	 * Opens a forward-only cursor over all the occurencies of the entity
+	 * <p>The cursor must be closed in order to release its connection
+	 * @return Iterator over the cursor
+	 * @throws RepositoryException
+	 *             - If an error occurs while opening the cursor
+	 */
+	public abstract ScrollIterator<T> scroll() throws RepositoryException;
+	
+	/**
+	 * Opens a forward-only cursor over the hql query results
+	 * <p>The cursor must be closed in order to release its connection
+	 * @param hql
+	 *            - The query to be executed
+	 * @return Iterator over the cursor
+	 * @throws RepositoryException
+	 *             - If an error occurs while opening the cursor
+	 */
+	public abstract ScrollIterator<T> scroll(String hql) throws RepositoryException;
+	
+	/**
+	 * Streams all the occurencies of the entity without loading them all in memory
+	 * <p>The stream must be closed in order to release its connection
+	 * @return Stream of the entities
+	 * @throws RepositoryException
+	 *             - If an error occurs while opening the cursor
+	 */
+	public abstract Stream<T> stream() throws RepositoryException;
+	
+	/**
+	 * Streams the hql query results without loading them all in memory
+	 * <p>The stream must be closed in order to release its connection
+	 * @param hql
+	 *            - The query to be executed
+	 * @return Stream of the entities
+	 * @throws RepositoryException
+	 *             - If an error occurs while opening the cursor
+	 */
+	public abstract Stream<T> stream(String hql) throws RepositoryException;
+	
 	/**
 	 * Save or Update the current entity on the database
 	 * @param entity - The entity to be persisted 
@@ -183,6 +361,42 @@ public interface Repository<T> {
 	 * @throws RepositoryException - If something wrong happens
 	 */
 	public abstract void delete(T entity) throws RepositoryException;
+	
+	/**
+	 * Execute a HQL deletion
+	 * @param hql - The deletion statement
+	 * @return Number of removed rows
+	 * @throws RepositoryException - If something wrong happens
+	 */
+	public abstract int hqlDelete(String hql) throws RepositoryException;
+	
+	/**
+	 * Save or Update the entities on a single transaction
+	 * <p>The persistence context is flushed and cleared every chunk, so JDBC batching can group the statements
+	 * @param entities - The entities to be persisted 
+	 * @return Report containing the timing of each chunk
+	 * @throws RepositoryException - If something wrong happens
+	 * @throws EntityExistsException - If an entity violates a constraint(see {@link EntityExistsException#getFailedIndex()})
+	 */
+	public abstract BatchReport saveAll(Collection<T> entities) throws RepositoryException, EntityExistsException;
+	
+	/**
+	 * Save or Update the entities on a single transaction, consuming the iterator as it goes
+	 * <p>Useful for imports that shouldn't be fully loaded on memory
+	 * @param entities - The entities to be persisted 
+	 * @return Report containing the timing of each chunk
+	 * @throws RepositoryException - If something wrong happens
+	 * @throws EntityExistsException - If an entity violates a constraint(see {@link EntityExistsException#getFailedIndex()})
+	 */
+	public abstract BatchReport saveAll(Iterator<T> entities) throws RepositoryException, EntityExistsException;
+	
+	/**
+	 * Remove the entities from the database on a single transaction
+	 * @param entities - The entities to be removed
+	 * @return Report containing the timing of each chunk
+	 * @throws RepositoryException - If something wrong happens
+	 */
+	public abstract BatchReport deleteAll(Collection<T> entities) throws RepositoryException;
 
 
 }
\ No newline at end of file
@@ -1,13 +1,38 @@
 package br.com.smartsy.fwj.mvc.resource;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Serializable;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLStreamException;
 
+import org.codehaus.jettison.mapped.MappedNamespaceConvention;
+import org.codehaus.jettison.mapped.MappedXMLStreamWriter;
+
+import br.com.smartsy.fwj.bean.render.CachedSchema;
 import br.com.smartsy.fwj.bean.render.Schema;
 import br.com.smartsy.fwj.bean.render.SchemaGenerator;
 import br.com.smartsy.fwj.exception.EntityExistsException;
@@ -15,6 +40,7 @@ import br.com.smartsy.fwj.exception.EntityNotFoundException;
 import br.com.smartsy.fwj.exception.ServiceException;
 import br.com.smartsy.fwj.mvc.service.Service;
 import br.com.smartsy.fwj.persistence.CustomQuery;
+import br.com.smartsy.fwj.persistence.KeysetPage;
 import br.com.smartsy.fwj.util.GenericsUtil;
 import br.com.smartsy.fwj.web.response.HttpResponse;
 
@@ -27,10 +53,33 @@ import br.com.smartsy.fwj.web.response.HttpResponse;
  */
 public abstract class AbstractResource<T> implements Resource<T> {
 	
+	/**
+	 * Response header holding the cursor of the next page
+	 */
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	
 	/**
 	 * The service layer for business logic
 	 */
 	private Service<T> service;
+	
+	/**
+	 * JAXB context of the entity, used by the streamed list
+	 */
+	private volatile JAXBContext context;
+	
+	private static final String GZIP = "gzip";
+	
+	/**
+	 * Representations of the schema, gzipped or not
+	 */
+	private static final List<Variant> SCHEMA_VARIANTS = Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE, MediaType.APPLICATION_XML_TYPE)
+			.encodings(GZIP).add().mediaTypes(MediaType.APPLICATION_JSON_TYPE, MediaType.APPLICATION_XML_TYPE).add().build();
+	
+	/**
+	 * JAXB context of the schema, used to serialize its cached representations
+	 */
+	private static volatile JAXBContext schemaContext;
 
 	public AbstractResource(Service<T> service) {
 		this.service = service;
@@ -158,18 +207,182 @@ public abstract class AbstractResource<T> implements Resource<T> {
 		}
 	}
 	
+	@Override
+	public Response listPage(String cursor, Integer length) {
+		try {
+			KeysetPage<T> page = service.listPage(cursor, length);
+			Response.ResponseBuilder builder = Response.ok().entity(wrapCollection(page.getEntities()));
+			if(page.hasNext())
+				builder.header(NEXT_CURSOR_HEADER, page.getCursor());
+			return builder.build();
+		} 
+		catch (ServiceException e) {
+			return Response.status(Status.BAD_REQUEST).entity(new HttpResponse(e.getMessage())).build();
+		}
+		catch(Exception e){
+			return Response.serverError().entity(new HttpResponse(e.getMessage())).build();
+		}
+	}
+	
+	@Override
+	public Response streamAll() {
+		try {
+			final Stream<T> entities = service.streamAll();
+			StreamingOutput output = new StreamingOutput() {
+				@Override
+				public void write(OutputStream os) throws IOException, WebApplicationException {
+					try (Stream<T> stream = entities) {
+						writeJsonArray(stream.iterator(), os);
+					}
+				}
+			};
+			return Response.ok(output, MediaType.APPLICATION_JSON).build();
+		} 
+		catch (ServiceException e) {
+			return Response.status(Status.BAD_REQUEST).entity(new HttpResponse(e.getMessage())).build();
+		}
+		catch(Exception e){
+			return Response.serverError().entity(new HttpResponse(e.getMessage())).build();
+		}
+	}
+	
 	@Override
 	public Response getSchema() {
+		return getSchema(null);
+	}
+	
+	/**
+	 * Generates the entity schema, answering 304(not modified) if the client copy is still valid
+	 * <p>JSON and XML are serialized, and gzipped, once per schema and served from the cached bytes
+	 */
+	@Override
+	public Response getSchema(Request request) {
 		try {
 			Class<T> type = GenericsUtil.resolveGenericType(this.getClass());
-			Schema schema = SchemaGenerator.getInstance().generate(type);
-			return Response.ok(schema).build();
+			CachedSchema cached = SchemaGenerator.getInstance().getCached(type);
+			EntityTag tag = new EntityTag(cached.getEntityTag());
+			if(request == null)
+				return Response.ok(cached.getSchema()).tag(tag).lastModified(cached.getLastModified()).build();
+			ResponseBuilder builder = request.evaluatePreconditions(cached.getLastModified(), tag);
+			if(builder == null){
+				Variant variant = request.selectVariant(SCHEMA_VARIANTS);
+				if(variant != null)
+					builder = Response.ok(getSchemaBytes(cached, variant), variant);
+				else
+					builder = Response.ok(cached.getSchema());
+			}
+			return builder.tag(tag).lastModified(cached.getLastModified()).variants(SCHEMA_VARIANTS).build();
 		} 
 		catch(Exception e){
 			return Response.serverError().entity(new HttpResponse(e.getMessage())).build();
 		}
 	}
 	
+	/**
+	 * Gets the schema serialized on the variant media type and encoding
+	 */
+	private static byte[] getSchemaBytes(CachedSchema cached, Variant variant) throws IOException {
+		final boolean json = MediaType.APPLICATION_JSON_TYPE.isCompatible(variant.getMediaType());
+		if(!GZIP.equals(variant.getEncoding()))
+			return cached.getRepresentation(variant.getMediaType().toString(), schema -> serializeSchema(schema, json));
+		return cached.getRepresentation(variant.getMediaType() + ";" + GZIP, schema -> {
+			byte[] plain = cached.getRepresentation(variant.getMediaType().toString(), s -> serializeSchema(s, json));
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(plain.length / 4 + 64);
+			try(GZIPOutputStream gzip = new GZIPOutputStream(compressed)){
+				gzip.write(plain);
+			}
+			return compressed.toByteArray();
+		});
+	}
+	
+	/**
+	 * Serializes the schema as JSON(through Jettison, like the default JSON provider) or XML
+	 */
+	private static byte[] serializeSchema(Schema schema, boolean json) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			Marshaller marshaller = getSchemaContext().createMarshaller();
+			if(json){
+				Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+				MappedXMLStreamWriter output = new MappedXMLStreamWriter(new MappedNamespaceConvention(), writer);
+				marshaller.marshal(schema, output);
+				output.flush();
+				writer.flush();
+			}
+			else {
+				marshaller.setProperty(Marshaller.JAXB_ENCODING, StandardCharsets.UTF_8.name());
+				marshaller.marshal(schema, bytes);
+			}
+		}
+		catch (JAXBException | XMLStreamException e) {
+			throw new IOException("Couldn't serialize the schema: " + e.getMessage(), e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	private static JAXBContext getSchemaContext() throws JAXBException {
+		JAXBContext current = schemaContext;
+		if(current == null){
+			current = JAXBContext.newInstance(Schema.class);
+			schemaContext = current;
+		}
+		return current;
+	}
+	
+	/**
+	 * Writes the entities as a JSON array, one element at a time
+	 * @param entities
+	 * @param os
+	 * @throws IOException
+	 */
+	private void writeJsonArray(Iterator<T> entities, OutputStream os) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+		writer.write('[');
+		boolean first = true;
+		while(entities.hasNext()){
+			if(!first)
+				writer.write(',');
+			writeStreamElement(entities.next(), writer);
+			first = false;
+		}
+		writer.write(']');
+		writer.flush();
+	}
+	
+	/**
+	 * Writes a single element of the streamed list
+	 * <p>The default implementation marshals the entity with JAXB through Jettison,
+	 * just like the default JSON provider does
+	 * @param entity
+	 * @param writer
+	 * @throws IOException
+	 */
+	protected void writeStreamElement(T entity, Writer writer) throws IOException {
+		try {
+			Marshaller marshaller = getContext().createMarshaller();
+			MappedXMLStreamWriter json = new MappedXMLStreamWriter(new MappedNamespaceConvention(), writer);
+			marshaller.marshal(entity, json);
+			json.flush();
+		} 
+		catch (JAXBException | XMLStreamException e) {
+			throw new IOException("Couldn't write the entity as JSON: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Gets the JAXB context of the entity, creating it on the first call
+	 * @return JAXBContext
+	 * @throws JAXBException
+	 */
+	private JAXBContext getContext() throws JAXBException {
+		JAXBContext current = context;
+		if(current == null){
+			current = JAXBContext.newInstance(GenericsUtil.resolveGenericType(this.getClass()));
+			context = current;
+		}
+		return current;
+	}
+	
 	protected URI buildResourceLocation(UriInfo uriInfo, Serializable id){
 		return uriInfo.getAbsolutePathBuilder().path(id.toString()).build();
 	}
@@ -2,6 +2,7 @@ package br.com.smartsy.fwj.mvc.resource;
 
 import java.io.Serializable;
 
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
@@ -64,10 +65,34 @@ public interface Resource<T> {
 	 */
 	public abstract Response listAll(Integer offset, Integer length);
 	
+	/**
+	 * Lists a page of the entity records after the cursor and wrapps it
+	 * <p>The cursor of the next page is sent on the "X-Next-Cursor" header
+	 * @param cursor
+	 * @param length
+	 * @return List
+	 */
+	public abstract Response listPage(String cursor, Integer length);
+	
+	/**
+	 * Lists all the entity records writing them incrementally as a JSON array
+	 * <p>The records are read through a cursor, so the whole table is never held in memory
+	 * @return Streamed list
+	 */
+	public abstract Response streamAll();
+	
 	/**
 	 * Generates the entity schema
 	 * @return Schema
 	 */
 	public abstract Response getSchema();
+	
+	/**
+	 * Generates the entity schema, answering 304(not modified) if the client copy is still valid
+	 * <p>Validated by the "If-None-Match" and "If-Modified-Since" headers
+	 * @param request
+	 * @return Schema
+	 */
+	public abstract Response getSchema(Request request);
 
 }
\ No newline at end of file
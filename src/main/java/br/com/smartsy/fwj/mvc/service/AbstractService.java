@@ -2,6 +2,7 @@ package br.com.smartsy.fwj.mvc.service;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.apache.log4j.Logger;
 
@@ -10,6 +11,7 @@ import br.com.smartsy.fwj.exception.EntityNotFoundException;
 import br.com.smartsy.fwj.exception.ServiceException;
 import br.com.smartsy.fwj.mvc.repository.Repository;
 import br.com.smartsy.fwj.persistence.CustomQuery;
+import br.com.smartsy.fwj.persistence.KeysetPage;
 
 /**
  * Service layer abstraction
@@ -167,6 +169,40 @@ public abstract class AbstractService<T> implements Service<T> {
 		return listAll(0, 0);
 	}
 	
+	/**
+	 * Execute the list statement returning a page of the current entity
+	 * of the model, seeking after the cursor of the previous page
+	 * 
+	 * @return Page of entities
+	 * @throws ServiceException
+	 */
+	@Override
+	public KeysetPage<T> listPage(String cursor, Integer maxResults) throws ServiceException {
+		try {
+			return repository.listPage(cursor, maxResults);
+		} 
+		catch (Exception e) {
+			throw new ServiceException(e);
+		}
+	}
+	
+	/**
+	 * Execute the list statement returning a stream of the current entity
+	 * of the model
+	 * 
+	 * @return Stream of entities, must be closed when consumed
+	 * @throws ServiceException
+	 */
+	@Override
+	public Stream<T> streamAll() throws ServiceException {
+		try {
+			return repository.stream();
+		} 
+		catch (Exception e) {
+			throw new ServiceException(e);
+		}
+	}
+	
 	/**
 	 * Execute the custom query returning a collection of the current entity of the model
 	 * @return List of existent entities based on the custom query
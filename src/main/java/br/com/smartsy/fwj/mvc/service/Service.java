@@ -2,11 +2,13 @@ package br.com.smartsy.fwj.mvc.service;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.stream.Stream;
 
 import br.com.smartsy.fwj.exception.EntityExistsException;
 import br.com.smartsy.fwj.exception.EntityNotFoundException;
 import br.com.smartsy.fwj.exception.ServiceException;
 import br.com.smartsy.fwj.persistence.CustomQuery;
+import br.com.smartsy.fwj.persistence.KeysetPage;
 
 /**
  * Service(Business Logic) specification
@@ -68,6 +70,23 @@ public interface Service<T> {
 	 */
 	public abstract List<T> listAll() throws ServiceException, EntityNotFoundException;
 	
+	/**
+	 * Execute the list statement returning a page of the current entity of the model, seeking after the cursor
+	 * @param cursor - The cursor of the previous page, or null for the first page
+	 * @param maxResults - Maximum number of results
+	 * @return Page of entities and the cursor of the next one
+	 * @throws ServiceException 
+	 */
+	public abstract KeysetPage<T> listPage(String cursor,Integer maxResults) throws ServiceException;
+	
+	/**
+	 * Execute the list statement returning a stream of the current entity of the model
+	 * <p>The entities are read through a cursor, the stream must be closed when consumed
+	 * @return Stream of all existent entities
+	 * @throws ServiceException 
+	 */
+	public abstract Stream<T> streamAll() throws ServiceException;
+	
 	/**
 	 * Execute the custom query returning a collection of the current entity of the model
 	 * @return List of existent entities based on the custom query
@@ -0,0 +1,69 @@
+package br.com.smartsy.fwj.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of a batch write, with the timing of each flushed chunk
+ * @author Vagner
+ * @since 1.0
+ */
+public class BatchReport {
+
+	private final int chunkSize;
+	private final List<Long> chunkTimes = new ArrayList<>();
+	private int processed;
+	private long elapsedTime;
+
+	public BatchReport(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Register a flushed chunk
+	 * @param size - Number of entities on the chunk
+	 * @param nanos - Time spent writing and flushing the chunk
+	 */
+	public void addChunk(int size, long nanos) {
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+		this.processed += size;
+		this.elapsedTime += millis;
+		this.chunkTimes.add(millis);
+	}
+
+	/**
+	 * @return The configured number of entities per flush/clear
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * @return Number of entities written
+	 */
+	public int getProcessed() {
+		return processed;
+	}
+
+	/**
+	 * @return Time spent on each chunk(ms), in order
+	 */
+	public List<Long> getChunkTimes() {
+		return Collections.unmodifiableList(chunkTimes);
+	}
+
+	/**
+	 * @return Total time spent on the chunks(ms)
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	@Override
+	public String toString() {
+		return processed + " entities in " + chunkTimes.size() + " chunks of " + chunkSize + " (" + elapsedTime + "ms)";
+	}
+
+}
@@ -0,0 +1,19 @@
+package br.com.smartsy.fwj.persistence;
+
+import br.com.smartsy.fwj.persistence.cache.QueryCache;
+
+/**
+ * A {@link CustomQuery} whose results may be served from the {@link QueryCache}
+ * <p>Queries returning the same key must bring the same results
+ * @author Vagner
+ * @since 1.0
+ */
+public interface CacheableQuery extends CustomQuery {
+
+	/**
+	 * Identifies the query and its parameters
+	 * @return Cache key
+	 */
+	public String getCacheKey();
+
+}
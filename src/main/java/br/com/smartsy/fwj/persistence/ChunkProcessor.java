@@ -0,0 +1,22 @@
+package br.com.smartsy.fwj.persistence;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Processes a chunk of entities inside its transaction
+ * <p>The entities are managed by the given entity-manager, so their changes are written when the chunk commits.
+ * Any exception rolls the chunk back
+ * @author Vagner
+ * @since 1.0
+ *
+ * @param <T>
+ *            - The entity type
+ */
+@FunctionalInterface
+public interface ChunkProcessor<T> {
+
+	public void process(List<T> entities, EntityManager manager) throws Exception;
+
+}
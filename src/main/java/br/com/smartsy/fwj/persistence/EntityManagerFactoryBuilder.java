@@ -9,6 +9,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
+import br.com.smartsy.fwj.persistence.pool.PoolSettings;
 import br.com.smartsy.fwj.util.StringUtil;
 
 /**
@@ -17,6 +18,8 @@ import br.com.smartsy.fwj.util.StringUtil;
  *
  */
 public class EntityManagerFactoryBuilder {
+	public static final String JDBC_BATCH_SIZE = "hibernate.jdbc.batch_size";
+	
 	private String unit;
 	private Map<String, String> parameters = new HashMap<String,String>();
 	
@@ -41,6 +44,9 @@ public class EntityManagerFactoryBuilder {
 		
 		for(Object keyValue : keySet){
 			String key = String.valueOf(keyValue);
+			//Pool settings are not persistence parameters
+			if(key.startsWith(PoolSettings.PREFIX))
+				continue;
 			addParam(key, properties.getProperty(key));
 		}
 	}
@@ -78,6 +84,21 @@ public class EntityManagerFactoryBuilder {
 		return this;
 	}
 	
+	/**
+	 * Enable JDBC statement batching, ordering inserts and updates so they can be grouped
+	 * @param batchSize - Number of statements sent on each batch. Ex: 50
+	 * @return The builder itself
+	 */
+	public EntityManagerFactoryBuilder withJdbcBatching(int batchSize){
+		if(batchSize < 1)
+			throw new IllegalArgumentException("The batch size must be greater than zero");
+		addParam(JDBC_BATCH_SIZE, String.valueOf(batchSize));
+		addParam("hibernate.order_inserts", "true");
+		addParam("hibernate.order_updates", "true");
+		addParam("hibernate.jdbc.batch_versioned_data", "true");
+		return this;
+	}
+	
 	/**
 	 * Build an instance with the parametized details
 	 * @return An {@link EntityManagerFactory} instance
@@ -0,0 +1,105 @@
+package br.com.smartsy.fwj.persistence;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+import br.com.smartsy.fwj.util.StringUtil;
+
+/**
+ * Encodes the last sort key of a {@link KeysetPage} into an opaque, URL-safe cursor
+ * <p>Supported key types: String, numbers, {@link UUID} and {@link Date}
+ * @author Vagner
+ * @since 1.0
+ */
+public final class KeysetCursor {
+
+	private KeysetCursor() {
+	}
+
+	/**
+	 * Encodes the key
+	 * @param key - The last key of the page
+	 * @return Opaque cursor
+	 */
+	public static String encode(Object key) {
+		if (key == null)
+			throw new IllegalArgumentException("The sort key cannot be null");
+		checkSupported(key.getClass());
+		String value = key instanceof Date ? String.valueOf(((Date) key).getTime()) : key.toString();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes the cursor back to the key
+	 * @param cursor - Cursor created by {@link #encode(Object)}
+	 * @param type - The sort key type
+	 * @return The key
+	 * @throws IllegalArgumentException - If the cursor is not valid for the key type
+	 */
+	public static Object decode(String cursor, Class<?> type) {
+		if (!StringUtil.hasText(cursor))
+			return null;
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+			return convert(value, wrap(type));
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor '" + cursor + "'", e);
+		}
+	}
+
+	private static Object convert(String value, Class<?> type) {
+		if (type.equals(String.class))
+			return value;
+		if (type.equals(Long.class))
+			return Long.valueOf(value);
+		if (type.equals(Integer.class))
+			return Integer.valueOf(value);
+		if (type.equals(Short.class))
+			return Short.valueOf(value);
+		if (type.equals(Byte.class))
+			return Byte.valueOf(value);
+		if (type.equals(BigInteger.class))
+			return new BigInteger(value);
+		if (type.equals(BigDecimal.class))
+			return new BigDecimal(value);
+		if (type.equals(Double.class))
+			return Double.valueOf(value);
+		if (type.equals(Float.class))
+			return Float.valueOf(value);
+		if (type.equals(UUID.class))
+			return UUID.fromString(value);
+		if (Date.class.isAssignableFrom(type))
+			return new Date(Long.parseLong(value));
+		throw new IllegalArgumentException("Unsupported sort key type: " + type.getName());
+	}
+
+	private static void checkSupported(Class<?> type) {
+		if (!(CharSequence.class.isAssignableFrom(type) || Number.class.isAssignableFrom(type) || UUID.class.equals(type)
+				|| Date.class.isAssignableFrom(type)))
+			throw new IllegalArgumentException("Unsupported sort key type: " + type.getName());
+	}
+
+	private static Class<?> wrap(Class<?> type) {
+		if (!type.isPrimitive())
+			return type;
+		if (type.equals(long.class))
+			return Long.class;
+		if (type.equals(int.class))
+			return Integer.class;
+		if (type.equals(short.class))
+			return Short.class;
+		if (type.equals(byte.class))
+			return Byte.class;
+		if (type.equals(double.class))
+			return Double.class;
+		if (type.equals(float.class))
+			return Float.class;
+		return type;
+	}
+
+}
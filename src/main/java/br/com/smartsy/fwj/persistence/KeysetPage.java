@@ -0,0 +1,43 @@
+package br.com.smartsy.fwj.persistence;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of entities read by keyset(seek) pagination
+ * <p>The cursor is opaque and must be sent back as is to read the following page
+ * @author Vagner
+ * @since 1.0
+ *
+ * @param <T>
+ *            - The entity type
+ */
+public class KeysetPage<T> {
+
+	private final List<T> entities;
+	private final String cursor;
+
+	public KeysetPage(List<T> entities, String cursor) {
+		this.entities = entities != null ? entities : Collections.<T>emptyList();
+		this.cursor = cursor;
+	}
+
+	/**
+	 * @return The entities of the page, ordered by the sort key
+	 */
+	public List<T> getEntities() {
+		return entities;
+	}
+
+	/**
+	 * @return Continuation cursor for the next page, or null if this is the last one
+	 */
+	public String getCursor() {
+		return cursor;
+	}
+
+	public boolean hasNext() {
+		return cursor != null;
+	}
+
+}
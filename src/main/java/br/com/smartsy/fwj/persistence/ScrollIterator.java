@@ -0,0 +1,132 @@
+package br.com.smartsy.fwj.persistence;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManager;
+
+import org.apache.log4j.Logger;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+/**
+ * Forward-only iterator over a Hibernate {@link ScrollableResults} cursor
+ * <p>The persistence context is cleared every N rows, so the iterated entities are detached
+ * and memory stays bounded. Closing the iterator closes the cursor and its {@link EntityManager}
+ * <p><b>Warning:</b> Lazy associations can't be initialized after the entity has been detached
+ * @author Vagner
+ * @since 1.0
+ *
+ * @param <T>
+ *            - The entity type
+ */
+public class ScrollIterator<T> implements Iterator<T>, AutoCloseable {
+
+	private static final Logger log = Logger.getLogger(ScrollIterator.class);
+
+	private final EntityManager manager;
+	private final ScrollableResults results;
+	private final Class<T> type;
+	private final int clearInterval;
+	private int rows;
+	private boolean fetched;
+	private boolean closed;
+
+	/**
+	 * @param manager - The entity manager owning the cursor(closed along with the iterator)
+	 * @param results - The forward-only cursor
+	 * @param type - The entity type
+	 * @param clearInterval - Number of rows between each persistence context clear
+	 */
+	public ScrollIterator(EntityManager manager, ScrollableResults results, Class<T> type, int clearInterval) {
+		this.manager = manager;
+		this.results = results;
+		this.type = type;
+		this.clearInterval = Math.max(1, clearInterval);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (closed)
+			return false;
+		if (!fetched) {
+			if (rows > 0 && rows % clearInterval == 0)
+				manager.unwrap(Session.class).clear();
+			fetched = results.next();
+			if (!fetched)
+				close();
+		}
+		return fetched;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		fetched = false;
+		rows++;
+		return type.cast(results.get(0));
+	}
+
+	/**
+	 * @return Number of rows read so far
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Wraps the iterator on a sequential {@link Stream}, closing it when the stream is closed
+	 * @return Stream
+	 */
+	public Stream<T> stream() {
+		Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::close);
+	}
+
+	/**
+	 * Close the cursor, rollback the read-only transaction and close the entity manager
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			results.close();
+		}
+		catch (RuntimeException e) {
+			log.warn("Couldn't close the scrollable results: " + e.getMessage(), e);
+		}
+		finally {
+			release(manager);
+		}
+	}
+
+	/**
+	 * Release a read-only entity manager
+	 * @param manager
+	 */
+	private static void release(EntityManager manager) {
+		try {
+			if (manager.isOpen()) {
+				try {
+					if (manager.getTransaction().isActive())
+						manager.getTransaction().rollback();
+				}
+				catch (IllegalStateException e) {
+					// JTA entity manager, transaction is handled by the container
+				}
+				manager.close();
+			}
+		}
+		catch (RuntimeException e) {
+			log.warn("Couldn't close the entity-manager: " + e.getMessage(), e);
+		}
+	}
+
+}
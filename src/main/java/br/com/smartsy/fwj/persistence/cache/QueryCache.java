@@ -0,0 +1,394 @@
+package br.com.smartsy.fwj.persistence.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import br.com.smartsy.fwj.cache.LruCache;
+import br.com.smartsy.fwj.persistence.CacheableQuery;
+
+/**
+ * Result cache of the repository queries
+ * <p>Results are kept on one region per entity type and keyed by the normalized query plus the paging window.
+ * Writes made through the repositories invalidate the whole region of the entity and the cached queries of
+ * other entities mentioning it.
+ * <p>Caching is disabled by default, it can be enabled for every query with {@link #setDefaults(boolean, long, TimeUnit)}
+ * or query by query with {@link #enable(String, long, TimeUnit)} and {@link #disable(String)}
+ * <p><b>Warning:</b> Cached instances are shared between callers
+ * @author Vagner
+ * @since 1.0
+ */
+public class QueryCache {
+
+	/**
+	 * Default maximum number of cached results per entity
+	 */
+	public static final int DEFAULT_MAX_SIZE = 500;
+
+	/**
+	 * Default time to live of the cached results, in minutes
+	 */
+	public static final long DEFAULT_TTL = 5;
+
+	/**
+	 * Maximum number of queries with statistics, the least recently used are dropped
+	 */
+	public static final int MAX_STATISTICS = 1000;
+
+	private final ConcurrentMap<Class<?>, LruCache<Key, List<?>>> regions = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Policy> policies = new ConcurrentHashMap<>();
+	private final LruCache<String, QueryStatistics> statistics = new LruCache<String, QueryStatistics>(MAX_STATISTICS, 0, TimeUnit.NANOSECONDS);
+	private volatile Policy defaultPolicy = new Policy(false, TimeUnit.MINUTES.toNanos(DEFAULT_TTL));
+	private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+	private QueryCache() {
+	}
+
+	private static class InstanceHolder {
+		private static final QueryCache INSTANCE = new QueryCache();
+	}
+
+	public static QueryCache getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Sets the policy of the queries without a specific one
+	 * @param enabled - True to cache every query
+	 * @param ttl - Time to live of the results, zero or less to never expire
+	 * @param unit - The time to live unit
+	 */
+	public void setDefaults(boolean enabled, long ttl, TimeUnit unit) {
+		this.defaultPolicy = new Policy(enabled, ttl > 0 ? unit.toNanos(ttl) : 0);
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Sets the maximum number of cached results per entity
+	 * <p>Applied to the regions created afterwards
+	 * @param maxSize
+	 */
+	public void setMaxSize(int maxSize) {
+		if (maxSize < 1)
+			throw new IllegalArgumentException("The cache size must be greater than zero");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Caches the query results
+	 * @param query - HQL or {@link CacheableQuery#getCacheKey()}
+	 * @param ttl - Time to live of the results, zero or less to never expire
+	 * @param unit - The time to live unit
+	 */
+	public void enable(String query, long ttl, TimeUnit unit) {
+		policies.put(normalize(query), new Policy(true, ttl > 0 ? unit.toNanos(ttl) : 0));
+	}
+
+	/**
+	 * Never caches the query results
+	 * @param query - HQL or {@link CacheableQuery#getCacheKey()}
+	 */
+	public void disable(String query) {
+		String normalized = normalize(query);
+		policies.put(normalized, new Policy(false, 0));
+		for (LruCache<Key, List<?>> region : regions.values())
+			region.invalidateIf(key -> key.query.equals(normalized));
+	}
+
+	/**
+	 * Removes the specific policy of the query, back to the defaults
+	 * @param query - HQL or {@link CacheableQuery#getCacheKey()}
+	 */
+	public void reset(String query) {
+		policies.remove(normalize(query));
+	}
+
+	/**
+	 * Check if the query results may be cached
+	 * @param query - HQL or {@link CacheableQuery#getCacheKey()}
+	 * @return True or False
+	 */
+	public boolean isCacheable(String query) {
+		return query != null && policy(normalize(query)).enabled;
+	}
+
+	/**
+	 * Gets the cached results, executing the query on a miss
+	 * <p>Concurrent misses of the same query are executed once, and results executed while the entity
+	 * was being invalidated are not stored. Queries that are not cacheable are always executed
+	 * @param type - The entity type
+	 * @param query - HQL or {@link CacheableQuery#getCacheKey()}
+	 * @param firstResult
+	 * @param maxResults
+	 * @param execution - Executes the query
+	 * @return A copy of the results
+	 * @throws Exception - The execution failure
+	 */
+	public <T> List<T> get(Class<?> type, String query, int firstResult, int maxResults, Callable<List<T>> execution) throws Exception {
+		return get(type, query, null, firstResult, maxResults, execution);
+	}
+
+	/**
+	 * Gets the cached results of a parameterized query, executing it on a miss
+	 * <p>The parameters values are part of the key, the policy and statistics are shared by the template
+	 * @param type - The entity type
+	 * @param query - HQL template, named query or {@link CacheableQuery#getCacheKey()}
+	 * @param parameters - The bound values
+	 * @param firstResult
+	 * @param maxResults
+	 * @param execution - Executes the query
+	 * @return A copy of the results
+	 * @throws Exception - The execution failure
+	 * @see #get(Class, String, int, int, Callable)
+	 */
+	public <T> List<T> get(Class<?> type, String query, Map<String, ?> parameters, int firstResult, int maxResults,
+			final Callable<List<T>> execution) throws Exception {
+		return get(type, query, parameters, type, firstResult, maxResults, execution);
+	}
+
+	/**
+	 * Gets the cached results of a parameterized query projecting another type, executing it on a miss
+	 * <p>The result type is part of the key, so the same query projected as different types never shares results
+	 * @param type - The entity type
+	 * @param query - HQL template, named query or {@link CacheableQuery#getCacheKey()}
+	 * @param parameters - The bound values
+	 * @param resultType - The type of the results
+	 * @param firstResult
+	 * @param maxResults
+	 * @param execution - Executes the query
+	 * @return A copy of the results
+	 * @throws Exception - The execution failure
+	 * @see #get(Class, String, Map, int, int, Callable)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> get(Class<?> type, String query, Map<String, ?> parameters, Class<?> resultType, int firstResult, int maxResults,
+			final Callable<List<T>> execution) throws Exception {
+		String normalized = normalize(query);
+		Policy policy = policy(normalized);
+		if (!policy.enabled)
+			return execution.call();
+		final boolean[] executed = new boolean[1];
+		Key cacheKey = new Key(normalized, parameters == null || parameters.isEmpty() ? null : new HashMap<String, Object>(parameters),
+				resultType, firstResult, maxResults);
+		List<?> results = region(type).get(cacheKey, key -> {
+			executed[0] = true;
+			List<T> loaded = execution.call();
+			return loaded != null ? Collections.unmodifiableList(new ArrayList<>(loaded)) : null;
+		}, policy.ttl, TimeUnit.NANOSECONDS);
+		QueryStatistics counters = statistics.get(mask(normalized), QueryStatistics::new);
+		if (executed[0])
+			counters.miss();
+		else
+			counters.hit();
+		return results != null ? new ArrayList<T>((List<T>) results) : null;
+	}
+
+	/**
+	 * Invalidates the cached results of the entity, and the queries of other entities mentioning it
+	 * @param type - The entity type
+	 * @param entityName - The entity name used on HQL
+	 */
+	public void invalidate(Class<?> type, String entityName) {
+		for (Map.Entry<Class<?>, LruCache<Key, List<?>>> region : regions.entrySet()) {
+			if (region.getKey().equals(type))
+				region.getValue().invalidateAll();
+			else if (entityName != null)
+				region.getValue().invalidateIf(key -> mentions(key.query, entityName));
+		}
+	}
+
+	/**
+	 * Invalidates every cached result
+	 */
+	public void invalidateAll() {
+		for (LruCache<Key, List<?>> region : regions.values())
+			region.invalidateAll();
+	}
+
+	/**
+	 * Gets the cached queries with the best hit rate
+	 * <p>Queries differing only on their literals share the statistics
+	 * @param limit - Maximum number of queries
+	 * @return Statistics of the queries, sorted by hit rate and hits
+	 */
+	public List<QueryStatistics> getTopQueries(int limit) {
+		List<QueryStatistics> top = statistics.values();
+		top.sort(Comparator.comparingDouble(QueryStatistics::getHitRate).thenComparingLong(QueryStatistics::getHits).reversed());
+		return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+	}
+
+	/**
+	 * Formats the cached queries with the best hit rate, one per line
+	 * @param limit - Maximum number of queries
+	 * @return The report
+	 */
+	public String report(int limit) {
+		StringBuilder report = new StringBuilder("Top cached queries by hit rate:");
+		for (QueryStatistics query : getTopQueries(limit))
+			report.append(System.lineSeparator()).append(query);
+		return report.toString();
+	}
+
+	/**
+	 * Clears the cached results, statistics and policies
+	 */
+	public void clear() {
+		regions.clear();
+		statistics.invalidateAll();
+		policies.clear();
+	}
+
+	/**
+	 * Collapses the whitespace, so queries differing only on formatting share the entry
+	 * <p>Quoted literals are kept as they are
+	 * @param query
+	 * @return Normalized query
+	 */
+	public static String normalize(String query) {
+		if (query == null)
+			return "";
+		StringBuilder normalized = new StringBuilder(query.length());
+		boolean space = false;
+		char quote = 0;
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if (quote != 0) {
+				normalized.append(c);
+				if (c == quote)
+					quote = 0;
+				continue;
+			}
+			if (Character.isWhitespace(c)) {
+				space = normalized.length() > 0;
+				continue;
+			}
+			if (space)
+				normalized.append(' ');
+			normalized.append(c);
+			space = false;
+			if (c == '\'' || c == '"')
+				quote = c;
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 * Replaces the literals of the normalized query by '?': quoted and numeric literals, and the arguments of the
+	 * query functions(e.g: #encrypt(?)), so values are neither kept nor reported
+	 * @param query - The normalized query
+	 * @return Masked query
+	 */
+	static String mask(String query) {
+		StringBuilder masked = new StringBuilder(query.length());
+		int length = query.length();
+		for (int i = 0; i < length; i++) {
+			char c = query.charAt(i);
+			char previous = i > 0 ? query.charAt(i - 1) : ' ';
+			if (c == '\'' || c == '"') {
+				int close = query.indexOf(c, i + 1);
+				//Doubled quotes are escaped ones
+				while (close >= 0 && close + 1 < length && query.charAt(close + 1) == c)
+					close = query.indexOf(c, close + 2);
+				masked.append(c).append('?').append(c);
+				i = close < 0 ? length : close;
+			}
+			else if (c == '#') {
+				int open = i + 1;
+				while (open < length && Character.isJavaIdentifierPart(query.charAt(open)))
+					open++;
+				int close = open < length && query.charAt(open) == '(' ? query.indexOf(')', open) : -1;
+				if (close < 0) {
+					masked.append(c);
+					continue;
+				}
+				masked.append(query, i, open).append("(?)");
+				i = close;
+			}
+			else if (Character.isDigit(c) && !Character.isJavaIdentifierPart(previous) && previous != ':' && previous != '?' && previous != '.') {
+				while (i + 1 < length && (Character.isJavaIdentifierPart(query.charAt(i + 1)) || query.charAt(i + 1) == '.'))
+					i++;
+				masked.append('?');
+			}
+			else
+				masked.append(c);
+		}
+		return masked.toString();
+	}
+
+	/**
+	 * Check if the query mentions the entity name as a whole word
+	 */
+	private static boolean mentions(String query, String entityName) {
+		for (int i = query.indexOf(entityName); i >= 0; i = query.indexOf(entityName, i + 1)) {
+			int end = i + entityName.length();
+			if ((i == 0 || !Character.isJavaIdentifierPart(query.charAt(i - 1)))
+					&& (end == query.length() || !Character.isJavaIdentifierPart(query.charAt(end))))
+				return true;
+		}
+		return false;
+	}
+
+	private Policy policy(String normalized) {
+		Policy policy = policies.get(normalized);
+		return policy != null ? policy : defaultPolicy;
+	}
+
+	private LruCache<Key, List<?>> region(Class<?> type) {
+		return regions.computeIfAbsent(type, t -> new LruCache<Key, List<?>>(maxSize, 0, TimeUnit.NANOSECONDS));
+	}
+
+	private static class Policy {
+		private final boolean enabled;
+		private final long ttl;
+
+		private Policy(boolean enabled, long ttl) {
+			this.enabled = enabled;
+			this.ttl = ttl;
+		}
+	}
+
+	private static class Key {
+		private final String query;
+		private final Map<String, Object> parameters;
+		private final Class<?> resultType;
+		private final int firstResult;
+		private final int maxResults;
+
+		private Key(String query, Map<String, Object> parameters, Class<?> resultType, int firstResult, int maxResults) {
+			this.query = query;
+			this.parameters = parameters;
+			this.resultType = resultType;
+			this.firstResult = firstResult;
+			this.maxResults = maxResults;
+		}
+
+		@Override
+		public int hashCode() {
+			return (((query.hashCode() * 31 + Objects.hashCode(parameters)) * 31 + Objects.hashCode(resultType)) * 31 + firstResult) * 31
+					+ maxResults;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return firstResult == other.firstResult && maxResults == other.maxResults && query.equals(other.query)
+					&& resultType == other.resultType && Objects.equals(parameters, other.parameters);
+		}
+	}
+
+}
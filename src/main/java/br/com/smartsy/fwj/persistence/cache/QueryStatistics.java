@@ -0,0 +1,57 @@
+package br.com.smartsy.fwj.persistence.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Usage counters of a cached query, every paging window included
+ * @author Vagner
+ * @since 1.0
+ */
+public class QueryStatistics {
+
+	private final String query;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	QueryStatistics(String query) {
+		this.query = query;
+	}
+
+	void hit() {
+		hits.incrementAndGet();
+	}
+
+	void miss() {
+		misses.incrementAndGet();
+	}
+
+	/**
+	 * @return The normalized query, with its literals masked
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Hits over executions, from 0 to 1
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long requests = hits + getMisses();
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%5.1f%% hits=%d, misses=%d: %s", getHitRate() * 100, getHits(), getMisses(), query);
+	}
+
+}
@@ -1,30 +1,20 @@
 package br.com.smartsy.fwj.persistence.function;
 
-import java.security.NoSuchAlgorithmException;
-
 /**
  * Strategy contract for query function handling
+ * <p>Implementations are shared by every query, so they must be stateless
  * @author Vagner
  * @since 1.0
  */
 public interface FunctionStrategy {
 
 	/**
-	 * Handles a query, resolving the specific function
-	 * @param query - The query to be resolved
-	 * @param functionIndex - The index of the function
+	 * Resolves the function argument
+	 * @param argument - The text between the function parentheses
 	 * @param clazz - The entity type
-	 * @return The resolved query
-	 * @throws NoSuchAlgorithmException 
+	 * @return The resolved value, or null if the function doesn't apply to the entity(the original text is kept)
+	 * @throws Exception - If the function fails, so the query is replaced for system safety
 	 */
-	public String handle(String query,int functionIndex,Class<?> clazz) throws Exception;
-	
-	/**
-	 * Validates the function
-	 * @param query - The query to be resolved
-	 * @param functionIndex - The index of the function
-	 * @param clazz - The entity type
-	 * @return True if valid, False if not
-	 */
-	public boolean isValid(String query, int functionIndex, Class<?> clazz);
+	public String resolve(String argument, Class<?> clazz) throws Exception;
+
 }
@@ -2,6 +2,7 @@ package br.com.smartsy.fwj.persistence.function;
 
 /**
  * Available query functions
+ * <p>Functions are written as the identifier followed by the value between parentheses(e.g: #encrypt(value))
  * @author Vagner
  *
  */
@@ -12,14 +13,21 @@ public enum QueryFunction {
 	 * <p><b>WARNING:</b></p> 
 	 * <p><i>If it fail, the query will be replaced by an invalid one for system safety</i></p>
 	 */
-	ENCRYPT("#encrypt",new EncryptFunctionStrategy());
+	ENCRYPT("#encrypt",new EncryptFunctionStrategy(),"ENCRYPTION_FAILED");
+	
+	/**
+	 * Prefix shared by every function identifier
+	 */
+	public static final char PREFIX = '#';
 	
 	private String functionIdentifier;
 	private FunctionStrategy strategy;
+	private String failureMarker;
 
-	private QueryFunction(String functionIdentifier,FunctionStrategy strategy){
+	private QueryFunction(String functionIdentifier,FunctionStrategy strategy,String failureMarker){
 		this.functionIdentifier = functionIdentifier;
 		this.strategy = strategy;
+		this.failureMarker = failureMarker;
 	}
 
 	public String getFunctionIdentifier() {
@@ -32,5 +40,13 @@ public enum QueryFunction {
 	
 	public int getIdentifierLenght(){
 		return this.getFunctionIdentifier().length();
-	}	
-}
\ No newline at end of file
+	}
+	
+	/**
+	 * Gets the invalid query used when the function fails
+	 * @return Replacement query
+	 */
+	public String getFailureQuery(){
+		return "[" + failureMarker + "] - For system safety, the query has been replaced";
+	}
+}
@@ -0,0 +1,174 @@
+package br.com.smartsy.fwj.persistence.function;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import br.com.smartsy.fwj.cache.LruCache;
+import br.com.smartsy.fwj.security.Algorithm;
+import br.com.smartsy.fwj.security.Encrypter;
+
+/**
+ * HQL query with its {@link QueryFunction} calls resolved
+ * <p>The query is split into literal and function segments on a single pass, every occurrence of every function
+ * is resolved and the result is cached per entity type, so each template is compiled only once.
+ * <p>The cache is keyed by a SHA-256 digest of the query, so the plain function arguments(e.g: the values of
+ * #encrypt) are not kept on the heap
+ * @author Vagner
+ * @since 1.0
+ */
+public final class QueryTemplate {
+
+	private static final Logger log = Logger.getLogger(QueryTemplate.class);
+
+	/**
+	 * Maximum number of compiled templates
+	 */
+	public static final int MAX_TEMPLATES = 1000;
+
+	private static final LruCache<String, QueryTemplate> templates = new LruCache<String, QueryTemplate>(MAX_TEMPLATES, 0, TimeUnit.MINUTES);
+
+	private final String query;
+	private final int functions;
+	private final boolean failed;
+
+	private QueryTemplate(String query, int functions, boolean failed) {
+		this.query = query;
+		this.functions = functions;
+		this.failed = failed;
+	}
+
+	/**
+	 * Gets the compiled template
+	 * @param hql - The query
+	 * @param entityType - The entity the functions are resolved against
+	 * @return QueryTemplate
+	 */
+	public static QueryTemplate compile(String hql, Class<?> entityType) {
+		//Queries without functions are kept as they are
+		if (hql == null || hql.indexOf(QueryFunction.PREFIX) < 0)
+			return new QueryTemplate(hql, 0, false);
+		String key = digest(hql, entityType);
+		QueryTemplate template = key != null ? templates.get(key) : null;
+		if (template == null) {
+			template = resolve(tokenize(hql), entityType);
+			//Failures may be transient, so they are resolved again on the next call
+			if (!template.failed && key != null)
+				templates.put(key, template);
+		}
+		return template;
+	}
+
+	/**
+	 * Digests the entity and query into the cache key
+	 * @return The key, or null if the digest is not available
+	 */
+	private static String digest(String hql, Class<?> entityType) {
+		try {
+			return Encrypter.getInstance(Algorithm.SHA256).encrypt((entityType != null ? entityType.getName() : "") + ':' + hql);
+		}
+		catch (NoSuchAlgorithmException e) {
+			log.warn("Couldn't digest the query template, it won't be cached: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Clears the compiled templates
+	 */
+	public static void clear() {
+		templates.invalidateAll();
+	}
+
+	/**
+	 * @return The resolved query
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	/**
+	 * @return Number of functions resolved
+	 */
+	public int getFunctions() {
+		return functions;
+	}
+
+	/**
+	 * Splits the query into literal and function segments
+	 * <p>Unterminated functions are kept as literal text
+	 */
+	private static List<Segment> tokenize(String hql) {
+		List<Segment> segments = new ArrayList<>();
+		int literalStart = 0;
+		int index = hql.indexOf(QueryFunction.PREFIX);
+		while (index >= 0) {
+			int next = index + 1;
+			for (QueryFunction function : QueryFunction.values()) {
+				int open = index + function.getIdentifierLenght();
+				if (!hql.startsWith(function.getFunctionIdentifier(), index) || open >= hql.length() || hql.charAt(open) != '(')
+					continue;
+				int close = hql.indexOf(')', open + 1);
+				if (close < 0)
+					break;
+				if (index > literalStart)
+					segments.add(new Segment(null, hql.substring(literalStart, index)));
+				segments.add(new Segment(function, hql.substring(open + 1, close), hql.substring(index, close + 1)));
+				literalStart = next = close + 1;
+				break;
+			}
+			index = hql.indexOf(QueryFunction.PREFIX, next);
+		}
+		if (literalStart < hql.length())
+			segments.add(new Segment(null, hql.substring(literalStart)));
+		return segments;
+	}
+
+	private static QueryTemplate resolve(List<Segment> segments, Class<?> entityType) {
+		StringBuilder query = new StringBuilder();
+		int functions = 0;
+		for (Segment segment : segments) {
+			if (segment.function == null) {
+				query.append(segment.text);
+				continue;
+			}
+			try {
+				String value = segment.function.getStrategy().resolve(segment.text, entityType);
+				if (value == null) {
+					query.append(segment.source);
+					continue;
+				}
+				query.append(value);
+				functions++;
+			}
+			catch (Exception e) {
+				log.warn("Couldn't resolve the function '" + segment.function + "': " + e.getMessage());
+				return new QueryTemplate(segment.function.getFailureQuery(), functions, true);
+			}
+		}
+		return new QueryTemplate(query.toString(), functions, false);
+	}
+
+	/**
+	 * Literal text, or function call with its argument
+	 */
+	private static final class Segment {
+		private final QueryFunction function;
+		private final String text;
+		private final String source;
+
+		private Segment(QueryFunction function, String text) {
+			this(function, text, text);
+		}
+
+		private Segment(QueryFunction function, String text, String source) {
+			this.function = function;
+			this.text = text;
+			this.source = source;
+		}
+	}
+
+}
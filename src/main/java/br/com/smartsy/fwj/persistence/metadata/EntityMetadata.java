@@ -0,0 +1,135 @@
+package br.com.smartsy.fwj.persistence.metadata;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.apache.log4j.Logger;
+
+import br.com.smartsys.fwj.annotation.Encrypt;
+import br.com.smartsys.fwj.annotation.Random;
+
+/**
+ * Annotated properties of an entity class, introspected once and shared by every repository
+ * <p>Holds the accessors of the {@link Random}, {@link Encrypt}, {@link Id} and {@link Version} getters
+ * @author Vagner
+ * @since 1.0
+ */
+public final class EntityMetadata {
+
+	private static final Logger log = Logger.getLogger(EntityMetadata.class);
+
+	private static final ConcurrentMap<Class<?>, EntityMetadata> registry = new ConcurrentHashMap<>();
+
+	private final Class<?> type;
+	private final List<PropertyAccessor> randomProperties;
+	private final List<PropertyAccessor> encryptedProperties;
+	private final List<PropertyAccessor> idProperties;
+	private final List<PropertyAccessor> versionProperties;
+
+	private EntityMetadata(Class<?> type) {
+		List<PropertyAccessor> random = new ArrayList<>();
+		List<PropertyAccessor> encrypted = new ArrayList<>();
+		List<PropertyAccessor> id = new ArrayList<>();
+		List<PropertyAccessor> version = new ArrayList<>();
+		this.type = type;
+		introspect(random, encrypted, id, version);
+		this.randomProperties = Collections.unmodifiableList(random);
+		this.encryptedProperties = Collections.unmodifiableList(encrypted);
+		this.idProperties = Collections.unmodifiableList(id);
+		this.versionProperties = Collections.unmodifiableList(version);
+	}
+
+	/**
+	 * Gets the metadata of the entity class, introspecting it on the first call
+	 * @param type - The entity class
+	 * @return EntityMetadata
+	 */
+	public static EntityMetadata of(Class<?> type) {
+		EntityMetadata metadata = registry.get(type);
+		return metadata != null ? metadata : registry.computeIfAbsent(type, EntityMetadata::new);
+	}
+
+	/**
+	 * Discard every introspected class(e.g: on redeploy)
+	 */
+	public static void clear() {
+		registry.clear();
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * @return String properties annotated with {@link Random}
+	 */
+	public List<PropertyAccessor> getRandomProperties() {
+		return randomProperties;
+	}
+
+	/**
+	 * @return String properties annotated with {@link Encrypt}
+	 */
+	public List<PropertyAccessor> getEncryptedProperties() {
+		return encryptedProperties;
+	}
+
+	/**
+	 * @return Properties annotated with {@link Id}
+	 */
+	public List<PropertyAccessor> getIdProperties() {
+		return idProperties;
+	}
+
+	/**
+	 * @return Properties annotated with {@link Version}
+	 */
+	public List<PropertyAccessor> getVersionProperties() {
+		return versionProperties;
+	}
+
+	private void introspect(List<PropertyAccessor> randomProperties, List<PropertyAccessor> encryptedProperties,
+			List<PropertyAccessor> idProperties, List<PropertyAccessor> versionProperties) {
+		for (Method method : type.getMethods()) {
+			boolean text = method.getReturnType().equals(String.class);
+			boolean random = text && method.getAnnotation(Random.class) != null;
+			boolean encrypt = text && method.getAnnotation(Encrypt.class) != null;
+			boolean id = method.getAnnotation(Id.class) != null;
+			boolean version = method.getAnnotation(Version.class) != null;
+			if (!random && !encrypt && !id && !version)
+				continue;
+			PropertyAccessor accessor = createAccessor(method);
+			if (accessor == null)
+				continue;
+			if (random)
+				randomProperties.add(accessor);
+			if (encrypt)
+				encryptedProperties.add(accessor);
+			if (id)
+				idProperties.add(accessor);
+			if (version)
+				versionProperties.add(accessor);
+		}
+	}
+
+	private PropertyAccessor createAccessor(Method getter) {
+		String name = getter.getName();
+		String property = name.startsWith("get") ? name.substring(3) : name.startsWith("is") ? name.substring(2) : name;
+		try {
+			Method setter = type.getMethod("set" + property, getter.getReturnType());
+			return new PropertyAccessor(getter, setter);
+		}
+		catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+			log.warn("The annotated property '" + name + "' of '" + type.getSimpleName() + "' has no accessible setter and will be ignored");
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package br.com.smartsy.fwj.persistence.metadata;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import br.com.smartsys.fwj.annotation.Encrypt;
+import br.com.smartsys.fwj.annotation.Random;
+
+/**
+ * Precomputed getter/setter pair of an entity property
+ * <p>Built once by {@link EntityMetadata}, so the save path doesn't need to search methods by name
+ * @author Vagner
+ * @since 1.0
+ */
+public final class PropertyAccessor {
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final String name;
+	private final Class<?> type;
+	private final MethodHandle getter;
+	private final MethodHandle setter;
+	private final Random random;
+	private final Encrypt encrypt;
+
+	PropertyAccessor(Method getter, Method setter) throws IllegalAccessException {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		if(!getter.isAccessible())
+			getter.setAccessible(true);
+		if(!setter.isAccessible())
+			setter.setAccessible(true);
+		this.name = getter.getName();
+		this.type = getter.getReturnType();
+		this.getter = lookup.unreflect(getter).asType(GETTER_TYPE);
+		this.setter = lookup.unreflect(setter).asType(SETTER_TYPE);
+		this.random = getter.getAnnotation(Random.class);
+		this.encrypt = getter.getAnnotation(Encrypt.class);
+	}
+
+	/**
+	 * @return The getter method name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public Random getRandom() {
+		return random;
+	}
+
+	public Encrypt getEncrypt() {
+		return encrypt;
+	}
+
+	/**
+	 * Reads the property value
+	 * @param target - The entity
+	 * @return The value
+	 */
+	public Object get(Object target) {
+		try {
+			return getter.invokeExact(target);
+		}
+		catch (RuntimeException | Error e) {
+			throw e;
+		}
+		catch (Throwable e) {
+			throw new IllegalStateException("Couldn't read the property '" + name + "': " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes the property value
+	 * @param target - The entity
+	 * @param value - The new value
+	 */
+	public void set(Object target, Object value) {
+		try {
+			setter.invokeExact(target, value);
+		}
+		catch (RuntimeException | Error e) {
+			throw e;
+		}
+		catch (Throwable e) {
+			throw new IllegalStateException("Couldn't write the property '" + name + "': " + e.getMessage(), e);
+		}
+	}
+
+}
@@ -1,7 +1,8 @@
 package br.com.smartsy.fwj.persistence.pool;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -13,11 +14,15 @@ import org.hibernate.SessionFactory;
 import br.com.smartsy.fwj.exception.ConnectionException;
 import br.com.smartsy.fwj.hibernate.MultitenancyStrategy;
 import br.com.smartsy.fwj.persistence.EntityManagerFactoryBuilder;
+import br.com.smartsy.fwj.util.PropertiesRegistry;
 import br.com.smartsy.fwj.util.PropertiesResolver;
 import br.com.smartsy.fwj.util.StringUtil;
 
 /**
  * A connection pool for storing JPA-{@link EntityManagerFactory} instances
+ * <p>
+ * Each named connection leases reusable {@link EntityManager} instances through
+ * its own bounded {@link EntityManagerPool}
  * 
  * @author Vagner
  * @since 1.0
@@ -29,15 +34,19 @@ public class BasicConnectionPool {
 	
 	private static final String DEFAULT_CONNECTION = "default";
 	private static final MultitenancyStrategy DEFAULT_STRATEGY = MultitenancyStrategy.FILTER;
-	private final Map<String, EntityManagerFactory> holder;
-	private static BasicConnectionPool instance;
-	private MultitenancyStrategy multitenancy;
+	private final ConcurrentMap<String, EntityManagerPool> holder;
+	private volatile MultitenancyStrategy multitenancy;
+	private volatile PoolSettings defaultSettings = new PoolSettings();
 
 	private BasicConnectionPool(MultitenancyStrategy multitenancy) {
-		this.holder = new HashMap<>();
+		this.holder = new ConcurrentHashMap<>();
 		setMultitenancy(multitenancy);
 	}
 
+	private static class InstanceHolder {
+		private static final BasicConnectionPool INSTANCE = new BasicConnectionPool(DEFAULT_STRATEGY);
+	}
+
 	/**
 	 * Get a singleton instance of the pool.
 	 * <p>
@@ -57,10 +66,8 @@ public class BasicConnectionPool {
 	 * @return ConnectionPool instance
 	 */
 	public static BasicConnectionPool getInstance(MultitenancyStrategy multitenancy) {
-		if (instance == null)
-			instance = new BasicConnectionPool(multitenancy);
-		else
-			instance.setMultitenancy(multitenancy);
+		BasicConnectionPool instance = InstanceHolder.INSTANCE;
+		instance.setMultitenancy(multitenancy);
 		return instance;
 	}
 	
@@ -72,6 +79,18 @@ public class BasicConnectionPool {
 		this.multitenancy = strategy;
 	}
 
+	public PoolSettings getDefaultSettings() {
+		return defaultSettings;
+	}
+
+	/**
+	 * Settings used by connections added without specific pool settings
+	 * @param settings
+	 */
+	public void setDefaultSettings(PoolSettings settings) {
+		this.defaultSettings = settings != null ? settings : new PoolSettings();
+	}
+
 	/**
 	 * Add a default unique connection to the pool
 	 * 
@@ -125,12 +144,34 @@ public class BasicConnectionPool {
 	 *             connection
 	 */
 	public EntityManagerFactory addConnection(String name, String persistenceUnit, Map<String, String> parameters) throws ConnectionException {
+		return addConnection(name, persistenceUnit, parameters, getDefaultSettings());
+	}
+
+	/**
+	 * Add connection to the pool based on unit, parameters and pool settings
+	 * 
+	 * @param name
+	 *            - A unique name for the connection(Warning: If you specify an
+	 *            already existing name, the previous one will be replaced)
+	 * @param persistenceUnit
+	 *            - The persistence unit name
+	 * @param parameters
+	 *            - Special parameters for overwriting the "persistence.xml"
+	 * @param settings
+	 *            - Leasing settings of the connection
+	 * @throws ConnectionException
+	 *             - If something wrong occurs while trying to open the
+	 *             connection
+	 */
+	public EntityManagerFactory addConnection(String name, String persistenceUnit, Map<String, String> parameters, PoolSettings settings) throws ConnectionException {
 		EntityManagerFactoryBuilder builder = new EntityManagerFactoryBuilder().forUnit(persistenceUnit).addParams(parameters);
-		return addConnection(name, builder);
+		return addConnection(name, builder, settings);
 	}
 
 	/**
 	 * Add connection to the pool based on datasourceFile
+	 * <p>
+	 * Pool settings may be declared on the same file(see {@link PoolSettings})
 	 * 
 	 * @param name
 	 *            - A unique name for the connection(Warning: If you specify an
@@ -146,19 +187,20 @@ public class BasicConnectionPool {
 	 *             connection
 	 */
 	public EntityManagerFactory addConnection(String name, String datasourceFile) throws ConnectionException {
-		PropertiesResolver resolver = new PropertiesResolver(datasourceFile);
+		PropertiesResolver resolver = PropertiesRegistry.getInstance().get(datasourceFile);
+		PoolSettings settings = new PoolSettings(resolver.getProperties());
 		EntityManagerFactoryBuilder builder = new EntityManagerFactoryBuilder(resolver.getProperties());
-		return addConnection(name, builder);
+		return addConnection(name, builder, settings);
 	}
 
-	private EntityManagerFactory addConnection(String name, EntityManagerFactoryBuilder builder) throws ConnectionException {
+	private synchronized EntityManagerFactory addConnection(String name, EntityManagerFactoryBuilder builder, PoolSettings settings) throws ConnectionException {
 		EntityManagerFactory factory = null;
 		if (StringUtil.hasText(name)) {
 			if (holder.get(name) != null)
 				releaseConnection(name);
 			factory = builder.build();
 			testConnection(factory);
-			holder.put(name, factory);
+			holder.put(name, new EntityManagerPool(name, factory, settings));
 		}
 		return factory;
 	}
@@ -186,21 +228,21 @@ public class BasicConnectionPool {
 	 * @param name
 	 *            - The unique name specified for the connection
 	 */
-	public void releaseConnection(String name) {
-		EntityManagerFactory connection = holder.get(name);
-		if (connection != null && connection.isOpen()) {
-			connection.close();
-			holder.remove(name);
+	public synchronized void releaseConnection(String name) {
+		EntityManagerPool pool = holder.remove(name);
+		if (pool != null) {
+			pool.close();
+			if (pool.getFactory().isOpen())
+				pool.getFactory().close();
 		}
 	}
 
 	/**
 	 * Releases all active connections on pool
 	 */
-	public void clear() {
+	public synchronized void clear() {
 		for (String key : holder.keySet())
 			releaseConnection(key);
-		holder.clear();
 	}
 
 	/**
@@ -219,9 +261,41 @@ public class BasicConnectionPool {
 	 * @return EntityManagerFactory
 	 */
 	public EntityManagerFactory getEntityManagerFactory(String name) {
+		EntityManagerPool pool = holder.get(name);
+		return pool != null ? pool.getFactory() : null;
+	}
+
+	/**
+	 * Get the leasing statistics of the connection
+	 * 
+	 * @param name
+	 *            - The unique name specified for the connection
+	 * @return PoolStatistics or null if the connection does not exist
+	 */
+	public PoolStatistics getStatistics(String name) {
+		EntityManagerPool pool = holder.get(name);
+		return pool != null ? pool.getStatistics() : null;
+	}
+
+	/**
+	 * Get the {@link EntityManagerPool} of the connection
+	 * 
+	 * @param name
+	 *            - The unique name specified for the connection
+	 * @return EntityManagerPool or null if the connection does not exist
+	 */
+	public EntityManagerPool getEntityManagerPool(String name) {
 		return holder.get(name);
 	}
 
+	/**
+	 * Discard the expired idle entity managers of every connection
+	 */
+	public void evictIdle() {
+		for (EntityManagerPool pool : holder.values())
+			pool.evictIdle();
+	}
+
 	/**
 	 * @return EntityManager
 	 * @throws ConnectionException 
@@ -252,6 +326,9 @@ public class BasicConnectionPool {
 	
 	/**
 	 * Get an {@link EntityManager} from pool
+	 * <p>
+	 * The manager is leased, closing it gives it back to the pool. Idle
+	 * managers are only validated when reused after the validation interval
 	 * 
 	 * @param name
 	 *            - The unique name specified for the connection
@@ -259,14 +336,13 @@ public class BasicConnectionPool {
 	 * 			  - Parameters to override pre-defined settings
 	 * @return JPA EntityManager
 	 * @throws ConnectionException 
+	 *             - If the connection does not exist or no lease is available in time
 	 */
 	public EntityManager getEntityManager(String name,Map<String,String> params) throws ConnectionException {
-		EntityManager manager = null;
-		EntityManagerFactory connection = getEntityManagerFactory(name);
-		if (connection != null && connection.isOpen())
-			manager = connection.createEntityManager(params);
-		testConnection(manager);
-		return manager;
+		EntityManagerPool pool = holder.get(name);
+		if (pool == null)
+			throw new ConnectionException("The connection '" + name + "' does not exist on the pool");
+		return pool.borrow(params);
 	}
 
 	/**
@@ -339,20 +415,9 @@ public class BasicConnectionPool {
 	 *             - If could not connect
 	 */
 	private void testConnection(EntityManagerFactory factory) throws ConnectionException {
-		testConnection(factory.createEntityManager());
-	}
-	
-	/**
-	 * Test the database connection
-	 * 
-	 * @param factory
-	 *            - The entity manager factory
-	 * @throws ConnectionException
-	 *             - If could not connect
-	 * @author Vagner 
-	 */
-	private void testConnection(EntityManager manager) throws ConnectionException {
+		EntityManager manager = null;
 		try {
+			manager = factory.createEntityManager();
 			manager.getTransaction().begin();
 			manager.getTransaction().rollback();
 		}
@@ -0,0 +1,395 @@
+package br.com.smartsy.fwj.persistence.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceException;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Session;
+
+import br.com.smartsy.fwj.exception.ConnectionException;
+import br.com.smartsy.fwj.util.NamedThreadFactory;
+
+/**
+ * Pool of reusable {@link EntityManager} instances for a single
+ * {@link EntityManagerFactory}, bounded when {@link PoolSettings#maxLeases(int)} is set
+ * <p>
+ * The borrowed entity manager is returned to the pool when closed, so callers
+ * keep using the plain JPA contract. The flush mode and the Hibernate filters
+ * are reset on return, and managers whose properties were changed are
+ * discarded instead of reused
+ *
+ * @author Vagner
+ * @since 1.0
+ *
+ */
+public class EntityManagerPool {
+
+	private static final Logger log = Logger.getLogger(EntityManagerPool.class);
+
+	/**
+	 * Shortest interval between two evictions of idle managers
+	 */
+	private static final long MIN_EVICTION_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+	/**
+	 * Pools by factory, so repositories lease from the pool of their factory
+	 */
+	private static final ConcurrentMap<EntityManagerFactory, EntityManagerPool> pools = new ConcurrentHashMap<>();
+
+	/**
+	 * Evicts the idle managers of every pool, apart from the borrowing threads
+	 */
+	private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("entity-manager-evictor"));
+
+	private final String name;
+	private final EntityManagerFactory factory;
+	private final PoolSettings settings;
+	private final Semaphore leases;
+	private final AtomicInteger active = new AtomicInteger();
+	private final BlockingDeque<IdleManager> idle = new LinkedBlockingDeque<>();
+	private final PoolStatistics statistics = new PoolStatistics();
+	private final ScheduledFuture<?> eviction;
+	private volatile boolean closed;
+
+	public EntityManagerPool(String name, EntityManagerFactory factory, PoolSettings settings) {
+		this.name = name;
+		this.factory = factory;
+		this.settings = settings != null ? settings : new PoolSettings();
+		this.leases = this.settings.getMaxLeases() > 0 ? new Semaphore(this.settings.getMaxLeases(), true) : null;
+		long interval = Math.max(this.settings.getIdleTimeout() / 2, MIN_EVICTION_INTERVAL);
+		this.eviction = evictor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+		pools.put(factory, this);
+	}
+
+	/**
+	 * Gets the open pool of the factory
+	 * @param factory
+	 * @return EntityManagerPool or null if the factory has no pool
+	 */
+	public static EntityManagerPool of(EntityManagerFactory factory) {
+		EntityManagerPool pool = factory != null ? pools.get(factory) : null;
+		return pool != null && !pool.isClosed() ? pool : null;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public EntityManagerFactory getFactory() {
+		return factory;
+	}
+
+	public PoolSettings getSettings() {
+		return settings;
+	}
+
+	public PoolStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return Number of entity managers currently leased
+	 */
+	public int getActiveLeases() {
+		return active.get();
+	}
+
+	/**
+	 * @return Number of entity managers waiting for reuse
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	public boolean isClosed() {
+		return closed || !factory.isOpen();
+	}
+
+	/**
+	 * Lease an {@link EntityManager} from the pool
+	 * <p>
+	 * Managers created with specific parameters are never reused, they are
+	 * only counted against the lease limit
+	 *
+	 * @param params
+	 *            - Parameters to override pre-defined settings
+	 * @return JPA EntityManager, closing it gives it back to the pool
+	 * @throws ConnectionException
+	 *             - If the pool is closed, no lease is available in time or
+	 *             the factory fails
+	 */
+	public EntityManager borrow(Map<String, String> params) throws ConnectionException {
+		if (isClosed())
+			throw new ConnectionException("The connection '" + name + "' has been closed");
+		acquire();
+		try {
+			boolean reusable = params == null || params.isEmpty();
+			EntityManager manager = reusable ? reuse() : null;
+			if (manager == null)
+				manager = create(params);
+			EntityManager leased = lease(manager, reusable);
+			statistics.lease();
+			active.incrementAndGet();
+			return leased;
+		}
+		catch (ConnectionException | RuntimeException e) {
+			release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Discard every idle entity manager that exceeded the idle timeout
+	 * <p>
+	 * Runs periodically, every half idle timeout
+	 */
+	public void evictIdle() {
+		long now = System.currentTimeMillis();
+		for (IdleManager entry : idle) {
+			if (now - entry.since >= settings.getIdleTimeout() && idle.remove(entry)) {
+				statistics.evicted();
+				destroy(entry.manager);
+			}
+		}
+	}
+
+	/**
+	 * Close every idle entity manager and refuse new leases
+	 * <p>
+	 * Leased managers are closed as soon as they are given back
+	 */
+	public void close() {
+		closed = true;
+		eviction.cancel(false);
+		pools.remove(factory, this);
+		IdleManager entry;
+		while ((entry = idle.poll()) != null)
+			destroy(entry.manager);
+	}
+
+	private void acquire() throws ConnectionException {
+		if (leases == null || leases.tryAcquire())
+			return;
+		statistics.waited();
+		try {
+			if (leases.tryAcquire(settings.getWaitTimeout(), TimeUnit.MILLISECONDS))
+				return;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException("Interrupted while waiting for a connection '" + name + "' lease", e);
+		}
+		statistics.timedOut();
+		throw new ConnectionException("Timed out after " + settings.getWaitTimeout() + "ms waiting for a connection '" + name + "' lease, "
+				+ active.get() + " of " + settings.getMaxLeases() + " leased");
+	}
+
+	private void release() {
+		if (leases != null)
+			leases.release();
+	}
+
+	/**
+	 * Recover the most recently used idle manager, validating it if it has been
+	 * idle for longer than the validation interval
+	 */
+	private EntityManager reuse() {
+		IdleManager entry;
+		while ((entry = idle.pollFirst()) != null) {
+			long idleTime = System.currentTimeMillis() - entry.since;
+			if (idleTime >= settings.getIdleTimeout() || !entry.manager.isOpen()) {
+				statistics.evicted();
+				destroy(entry.manager);
+				continue;
+			}
+			if (idleTime >= settings.getValidationInterval() && !validate(entry.manager)) {
+				statistics.validationFailed();
+				destroy(entry.manager);
+				continue;
+			}
+			return entry.manager;
+		}
+		return null;
+	}
+
+	private EntityManager create(Map<String, String> params) throws ConnectionException {
+		try {
+			EntityManager manager = params == null ? factory.createEntityManager() : factory.createEntityManager(params);
+			statistics.created();
+			return manager;
+		}
+		catch (RuntimeException e) {
+			throw new ConnectionException("Could not create an entity manager for connection '" + name + "': " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Give back a leased manager, keeping it for reuse when possible
+	 */
+	private void giveBack(Lease lease) {
+		EntityManager manager = lease.manager;
+		try {
+			if (!manager.isOpen())
+				return;
+			try {
+				if (manager.getTransaction().isActive())
+					manager.getTransaction().rollback();
+			}
+			catch (IllegalStateException e) {
+				// JTA entity manager, transaction is handled by the container
+			}
+			manager.clear();
+			if (lease.reusable && !lease.propertiesChanged && !isClosed() && idle.size() < settings.getMaxIdle()) {
+				reset(manager, lease.flushMode);
+				idle.offerFirst(new IdleManager(manager));
+			}
+			else
+				destroy(manager);
+		}
+		catch (RuntimeException e) {
+			log.warn("Discarding entity manager of connection '" + name + "': " + e.getMessage(), e);
+			destroy(manager);
+		}
+		finally {
+			active.decrementAndGet();
+			release();
+		}
+	}
+
+	/**
+	 * Restore the state a borrower may have changed: the flush mode and the
+	 * Hibernate filters enabled through the session
+	 */
+	private static void reset(EntityManager manager, FlushModeType flushMode) {
+		if (flushMode != null)
+			manager.setFlushMode(flushMode);
+		Session session;
+		try {
+			session = manager.unwrap(Session.class);
+		}
+		catch (PersistenceException e) {
+			// Not a Hibernate entity manager, no filters to reset
+			return;
+		}
+		for (Object filter : session.getSessionFactory().getDefinedFilterNames())
+			if (session.getEnabledFilter((String) filter) != null)
+				session.disableFilter((String) filter);
+	}
+
+	/**
+	 * Test the database connection with a begin/rollback round trip
+	 * @return True if the manager is usable
+	 */
+	static boolean validate(EntityManager manager) {
+		try {
+			manager.getTransaction().begin();
+			manager.getTransaction().rollback();
+			return true;
+		}
+		catch (IllegalStateException e) {
+			// JTA datasource, the container validates its own connections
+			return true;
+		}
+		catch (Exception e) {
+			log.debug("Connection Test - Entity manager validation failed: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private void destroy(EntityManager manager) {
+		try {
+			if (manager.isOpen())
+				manager.close();
+		}
+		catch (RuntimeException e) {
+			log.debug("Couldn't close the discarded entity manager: " + e.getMessage());
+		}
+	}
+
+	private EntityManager lease(EntityManager manager, boolean reusable) {
+		return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(), new Class<?>[] { EntityManager.class },
+				new Lease(manager, reusable, manager.getFlushMode()));
+	}
+
+	/**
+	 * Idle manager and the moment it was given back
+	 */
+	private static class IdleManager {
+		private final EntityManager manager;
+		private final long since;
+
+		private IdleManager(EntityManager manager) {
+			this.manager = manager;
+			this.since = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Handler of a single lease: closing it gives the manager back to the
+	 * pool instead of closing the underlying session
+	 */
+	private class Lease implements InvocationHandler {
+		private final EntityManager manager;
+		private final boolean reusable;
+		private final FlushModeType flushMode;
+		private boolean propertiesChanged;
+		private boolean released;
+
+		private Lease(EntityManager manager, boolean reusable, FlushModeType flushMode) {
+			this.manager = manager;
+			this.reusable = reusable;
+			this.flushMode = flushMode;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (released)
+					throw new IllegalStateException("The entity manager has already been closed");
+				released = true;
+				giveBack(this);
+				return null;
+			case "isOpen":
+				return !released && manager.isOpen();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Lease[" + name + "]" + manager;
+			case "setProperty":
+				// Properties can't be unset, the manager won't be reused, still delegating the call
+				propertiesChanged = true;
+			default:
+				if (released)
+					throw new IllegalStateException("The entity manager has been closed");
+				try {
+					return method.invoke(manager, args);
+				}
+				catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+	}
+
+}
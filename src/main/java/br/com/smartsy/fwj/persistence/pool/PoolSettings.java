@@ -0,0 +1,145 @@
+package br.com.smartsy.fwj.persistence.pool;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import br.com.smartsy.fwj.util.StringUtil;
+
+/**
+ * Settings for the {@link EntityManagerPool} of each named connection
+ * <p>
+ * May be loaded from the datasource file using the keys below:
+ * <p>
+ * pool.max_leases, pool.max_idle, pool.wait_timeout, pool.idle_timeout,
+ * pool.validation_interval (all times in milliseconds)
+ * <p>
+ * The number of leases is unbounded unless pool.max_leases is set
+ *
+ * @author Vagner
+ * @since 1.0
+ *
+ */
+public class PoolSettings {
+
+	public static final String PREFIX = "pool.";
+	public static final String MAX_LEASES = PREFIX + "max_leases";
+	public static final String MAX_IDLE = PREFIX + "max_idle";
+	public static final String WAIT_TIMEOUT = PREFIX + "wait_timeout";
+	public static final String IDLE_TIMEOUT = PREFIX + "idle_timeout";
+	public static final String VALIDATION_INTERVAL = PREFIX + "validation_interval";
+
+	private int maxLeases = 0;
+	private int maxIdle = 10;
+	private long waitTimeout = TimeUnit.SECONDS.toMillis(30);
+	private long idleTimeout = TimeUnit.MINUTES.toMillis(10);
+	private long validationInterval = TimeUnit.SECONDS.toMillis(30);
+
+	public PoolSettings() {
+		// Default values
+	}
+
+	/**
+	 * Prepare the settings based on datasource properties
+	 * @param properties
+	 */
+	public PoolSettings(Properties properties) {
+		if (properties != null) {
+			maxLeases(readInt(properties, MAX_LEASES, maxLeases));
+			maxIdle(readInt(properties, MAX_IDLE, maxIdle));
+			waitTimeout(readLong(properties, WAIT_TIMEOUT, waitTimeout), TimeUnit.MILLISECONDS);
+			idleTimeout(readLong(properties, IDLE_TIMEOUT, idleTimeout), TimeUnit.MILLISECONDS);
+			validationInterval(readLong(properties, VALIDATION_INTERVAL, validationInterval), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Maximum number of entity managers leased at the same time, zero for no limit(the default)
+	 * <p>Every lease counts, including the ones a thread takes while holding another(e.g: a scroll inside a
+	 * transaction), so the limit must leave room for the nested ones
+	 * @param maxLeases
+	 * @return The settings itself
+	 */
+	public PoolSettings maxLeases(int maxLeases) {
+		if (maxLeases < 0)
+			throw new IllegalArgumentException("The lease limit cannot be negative");
+		this.maxLeases = maxLeases;
+		return this;
+	}
+
+	/**
+	 * Maximum number of idle entity managers kept for reuse
+	 * @param maxIdle
+	 * @return The settings itself
+	 */
+	public PoolSettings maxIdle(int maxIdle) {
+		this.maxIdle = Math.max(0, maxIdle);
+		return this;
+	}
+
+	/**
+	 * How long a borrower waits for a free lease before failing
+	 * @param timeout
+	 * @param unit
+	 * @return The settings itself
+	 */
+	public PoolSettings waitTimeout(long timeout, TimeUnit unit) {
+		this.waitTimeout = unit.toMillis(Math.max(0, timeout));
+		return this;
+	}
+
+	/**
+	 * How long an idle entity manager is kept before being evicted
+	 * @param timeout
+	 * @param unit
+	 * @return The settings itself
+	 */
+	public PoolSettings idleTimeout(long timeout, TimeUnit unit) {
+		this.idleTimeout = unit.toMillis(Math.max(0, timeout));
+		return this;
+	}
+
+	/**
+	 * How long an entity manager may stay idle before being validated on borrow
+	 * @param interval
+	 * @param unit
+	 * @return The settings itself
+	 */
+	public PoolSettings validationInterval(long interval, TimeUnit unit) {
+		this.validationInterval = unit.toMillis(Math.max(0, interval));
+		return this;
+	}
+
+	/**
+	 * @return Maximum number of leases, zero for no limit
+	 */
+	public int getMaxLeases() {
+		return maxLeases;
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	public long getWaitTimeout() {
+		return waitTimeout;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public long getValidationInterval() {
+		return validationInterval;
+	}
+
+	private static int readInt(Properties properties, String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		return StringUtil.hasText(value) ? Integer.parseInt(value.trim()) : defaultValue;
+	}
+
+	private static long readLong(Properties properties, String key, long defaultValue) {
+		String value = properties.getProperty(key);
+		return StringUtil.hasText(value) ? Long.parseLong(value.trim()) : defaultValue;
+	}
+
+}
@@ -0,0 +1,93 @@
+package br.com.smartsy.fwj.persistence.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Usage counters of an {@link EntityManagerPool}
+ *
+ * @author Vagner
+ * @since 1.0
+ *
+ */
+public class PoolStatistics {
+
+	private final AtomicLong leases = new AtomicLong();
+	private final AtomicLong waits = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong creations = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong validationFailures = new AtomicLong();
+
+	void lease() {
+		leases.incrementAndGet();
+	}
+
+	void waited() {
+		waits.incrementAndGet();
+	}
+
+	void timedOut() {
+		timeouts.incrementAndGet();
+	}
+
+	void created() {
+		creations.incrementAndGet();
+	}
+
+	void evicted() {
+		evictions.incrementAndGet();
+	}
+
+	void validationFailed() {
+		validationFailures.incrementAndGet();
+	}
+
+	/**
+	 * @return Number of entity managers handed to borrowers
+	 */
+	public long getLeases() {
+		return leases.get();
+	}
+
+	/**
+	 * @return Number of borrowers that had to wait for a free lease
+	 */
+	public long getWaits() {
+		return waits.get();
+	}
+
+	/**
+	 * @return Number of borrowers that gave up waiting for a free lease
+	 */
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	/**
+	 * @return Number of entity managers created by the factory
+	 */
+	public long getCreations() {
+		return creations.get();
+	}
+
+	/**
+	 * @return Number of idle entity managers discarded
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return Number of idle entity managers that failed the validation on borrow
+	 */
+	public long getValidationFailures() {
+		return validationFailures.get();
+	}
+
+	@Override
+	public String toString() {
+		return "leases=" + getLeases() + ", waits=" + getWaits() + ", timeouts=" + getTimeouts() + ", creations=" + getCreations()
+				+ ", evictions=" + getEvictions() + ", validationFailures=" + getValidationFailures();
+	}
+
+}
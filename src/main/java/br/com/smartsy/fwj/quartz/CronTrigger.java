@@ -0,0 +1,166 @@
+package br.com.smartsy.fwj.quartz;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fires on the times matching a cron expression
+ * <p>Expressions have 6 fields(second, minute, hour, day of month, month and day of week) or 5, without the seconds.
+ * Each field accepts <code>*</code>, <code>?</code>, values, ranges(<code>1-5</code>), lists(<code>1,15</code>) and
+ * steps(<code>*&#47;10</code>, <code>0-30/5</code>). Months and days of week also accept their English abbreviations,
+ * and Sunday is either 0 or 7. When both days are restricted, a day matching any of them fires
+ * <p>E.g: <code>0 *&#47;5 * * * ?</code> every 5 minutes, <code>0 30 2 * * MON-FRI</code> at 02:30 on weekdays
+ * @author Vagner
+ *
+ */
+public class CronTrigger implements Trigger {
+
+	private static final List<String> MONTHS = Arrays.asList("JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC");
+	private static final List<String> DAYS = Arrays.asList("SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT");
+
+	/**
+	 * Years searched for the next fire before giving up(e.g: 30th of February)
+	 */
+	private static final int MAX_YEARS = 5;
+
+	private final String expression;
+	private final ZoneId zone;
+	private final BitSet seconds;
+	private final BitSet minutes;
+	private final BitSet hours;
+	private final BitSet daysOfMonth;
+	private final BitSet months;
+	private final BitSet daysOfWeek;
+	private final boolean anyDayOfMonth;
+	private final boolean anyDayOfWeek;
+
+	/**
+	 * @param expression - The cron expression, on the system time zone
+	 */
+	public CronTrigger(String expression) {
+		this(expression, ZoneId.systemDefault());
+	}
+
+	/**
+	 * @param expression - The cron expression
+	 * @param zone - The time zone of the expression
+	 */
+	public CronTrigger(String expression, ZoneId zone) {
+		if (expression == null)
+			throw new IllegalArgumentException("The cron expression must be specified");
+		String[] fields = expression.trim().split("\\s+");
+		if (fields.length == 5)
+			fields = ("0 " + expression.trim()).split("\\s+");
+		if (fields.length != 6)
+			throw new IllegalArgumentException("The cron expression '" + expression + "' must have 5 or 6 fields");
+		this.expression = expression;
+		this.zone = zone;
+		this.seconds = parse(fields[0], 0, 59, null);
+		this.minutes = parse(fields[1], 0, 59, null);
+		this.hours = parse(fields[2], 0, 23, null);
+		this.daysOfMonth = parse(fields[3], 1, 31, null);
+		this.months = parse(fields[4], 1, 12, MONTHS);
+		this.daysOfWeek = parse(fields[5], 0, 7, DAYS);
+		if (daysOfWeek.get(7))
+			daysOfWeek.set(0);
+		this.anyDayOfMonth = isAny(fields[3]);
+		this.anyDayOfWeek = isAny(fields[5]);
+	}
+
+	@Override
+	public long nextFireTime(long previous) {
+		ZonedDateTime time = Instant.ofEpochMilli(previous).atZone(zone).truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+		int limit = time.getYear() + MAX_YEARS;
+		while (time.getYear() <= limit) {
+			if (!months.get(time.getMonthValue()))
+				time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+			else if (!matchesDay(time))
+				time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+			else if (!hours.get(time.getHour()))
+				time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+			else if (!minutes.get(time.getMinute()))
+				time = time.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+			else if (!seconds.get(time.getSecond()))
+				time = time.plusSeconds(1);
+			else
+				return time.toInstant().toEpochMilli();
+		}
+		return -1;
+	}
+
+	public String getExpression() {
+		return expression;
+	}
+
+	@Override
+	public String toString() {
+		return "cron '" + expression + "'";
+	}
+
+	private boolean matchesDay(ZonedDateTime time) {
+		boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+		boolean dayOfWeek = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+		if (anyDayOfMonth)
+			return dayOfWeek;
+		if (anyDayOfWeek)
+			return dayOfMonth;
+		return dayOfMonth || dayOfWeek;
+	}
+
+	private static boolean isAny(String field) {
+		return "*".equals(field) || "?".equals(field);
+	}
+
+	private BitSet parse(String field, int min, int max, List<String> names) {
+		BitSet values = new BitSet(max + 1);
+		for (String part : field.split(",")) {
+			int step = 1;
+			int slash = part.indexOf('/');
+			if (slash >= 0) {
+				step = value(part.substring(slash + 1), 1, Integer.MAX_VALUE, null);
+				part = part.substring(0, slash);
+			}
+			int from;
+			int to;
+			if (isAny(part)) {
+				from = min;
+				to = max;
+			}
+			else {
+				int dash = part.indexOf('-');
+				from = value(dash >= 0 ? part.substring(0, dash) : part, min, max, names);
+				to = dash >= 0 ? value(part.substring(dash + 1), min, max, names) : slash >= 0 ? max : from;
+				if (from > to)
+					throw new IllegalArgumentException("Invalid range '" + part + "' on the cron expression '" + expression + "'");
+			}
+			for (int i = from; i <= to; i += step)
+				values.set(i);
+		}
+		return values;
+	}
+
+	private int value(String text, int min, int max, List<String> names) {
+		int value;
+		int index = names != null ? names.indexOf(text.toUpperCase(Locale.ENGLISH)) : -1;
+		if (index >= 0)
+			value = index + (names == MONTHS ? 1 : 0);
+		else {
+			try {
+				value = Integer.parseInt(text);
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid value '" + text + "' on the cron expression '" + expression + "'");
+			}
+		}
+		if (value < min || value > max)
+			throw new IllegalArgumentException("The value '" + text + "' is out of range on the cron expression '" + expression + "'");
+		return value;
+	}
+
+}
@@ -0,0 +1,50 @@
+package br.com.smartsy.fwj.quartz;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires at a fixed rate, counted from the scheduled fire times
+ * @author Vagner
+ *
+ */
+public class FixedRateTrigger implements Trigger {
+
+	private final long initialDelay;
+	private final long period;
+
+	/**
+	 * @param period - Time between fires
+	 * @param unit - The period unit
+	 */
+	public FixedRateTrigger(long period, TimeUnit unit) {
+		this(0, period, unit);
+	}
+
+	/**
+	 * @param initialDelay - Time before the first fire
+	 * @param period - Time between fires
+	 * @param unit - The delay and period unit
+	 */
+	public FixedRateTrigger(long initialDelay, long period, TimeUnit unit) {
+		if (period <= 0)
+			throw new IllegalArgumentException("The period must be greater than zero");
+		this.initialDelay = unit.toMillis(Math.max(initialDelay, 0));
+		this.period = Math.max(unit.toMillis(period), 1);
+	}
+
+	@Override
+	public long firstFireTime(long now) {
+		return now + initialDelay;
+	}
+
+	@Override
+	public long nextFireTime(long previous) {
+		return previous + period;
+	}
+
+	@Override
+	public String toString() {
+		return "every " + period + "ms";
+	}
+
+}
@@ -0,0 +1,265 @@
+package br.com.smartsy.fwj.quartz;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import br.com.smartsy.fwj.util.NamedThreadFactory;
+
+/**
+ * Lightweight, in-process scheduler of {@link Job}s
+ * <p>A single timer thread fires the jobs on the times given by their {@link Trigger}s and hands them to a bounded
+ * worker pool, apart from the request handling threads. A job never runs concurrently with itself: a fire arriving
+ * while the previous run is still executing is skipped. Fires later than the misfire threshold follow the job
+ * {@link MisfirePolicy}, and the fires missed meanwhile are not replayed
+ * @author Vagner
+ *
+ */
+public class JobScheduler {
+
+	private static final Logger log = Logger.getLogger(JobScheduler.class);
+
+	/**
+	 * Default number of jobs running at the same time
+	 */
+	public static final int DEFAULT_POOL_SIZE = 4;
+
+	/**
+	 * Default number of fires waiting for a worker
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+	/**
+	 * Default delay after which a fire is considered misfired, in seconds
+	 */
+	public static final long DEFAULT_MISFIRE_THRESHOLD = 5;
+
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("job-timer"));
+	private final ThreadPoolExecutor workers;
+	private final ConcurrentMap<String, ScheduledJob> jobs = new ConcurrentHashMap<>();
+	private volatile long misfireThreshold = TimeUnit.SECONDS.toMillis(DEFAULT_MISFIRE_THRESHOLD);
+
+	public JobScheduler() {
+		this(DEFAULT_POOL_SIZE, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param poolSize - Number of jobs running at the same time
+	 * @param queueCapacity - Number of fires waiting for a worker, further fires are skipped
+	 */
+	public JobScheduler(int poolSize, int queueCapacity) {
+		if (poolSize < 1 || queueCapacity < 1)
+			throw new IllegalArgumentException("The pool size and queue capacity must be greater than zero");
+		this.workers = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+				new NamedThreadFactory("job-worker"));
+		this.workers.allowCoreThreadTimeOut(true);
+	}
+
+	private static class InstanceHolder {
+		private static final JobScheduler INSTANCE = new JobScheduler();
+	}
+
+	/**
+	 * Gets the shared scheduler, with the default settings
+	 * @return JobScheduler
+	 */
+	public static JobScheduler getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Sets the delay after which a fire is considered misfired
+	 * @param threshold
+	 * @param unit
+	 */
+	public void setMisfireThreshold(long threshold, TimeUnit unit) {
+		this.misfireThreshold = unit.toMillis(Math.max(threshold, 0));
+	}
+
+	/**
+	 * Schedules the job, firing misfires at once
+	 * @param name - Identifies the job
+	 * @param job
+	 * @param trigger
+	 * @see #schedule(String, Job, Trigger, MisfirePolicy)
+	 */
+	public void schedule(String name, Job job, Trigger trigger) {
+		schedule(name, job, trigger, MisfirePolicy.FIRE_NOW);
+	}
+
+	/**
+	 * Schedules the job
+	 * @param name - Identifies the job
+	 * @param job
+	 * @param trigger - When the job fires
+	 * @param policy - What to do with late fires
+	 * @throws IllegalStateException - If there is a job with the same name, or the scheduler was shut down
+	 */
+	public void schedule(String name, Job job, Trigger trigger, MisfirePolicy policy) {
+		if (timer.isShutdown())
+			throw new IllegalStateException("The scheduler is shut down");
+		ScheduledJob scheduled = new ScheduledJob(name, job, trigger, policy);
+		if (jobs.putIfAbsent(name, scheduled) != null)
+			throw new IllegalStateException("The job '" + name + "' is already scheduled");
+		scheduled.arm(trigger.firstFireTime(System.currentTimeMillis()));
+		log.info("JOB>Scheduled '" + name + "' " + trigger);
+	}
+
+	/**
+	 * Cancels the next fires of the job, a running execution is not interrupted
+	 * @param name
+	 * @return True if the job was scheduled
+	 */
+	public boolean unschedule(String name) {
+		ScheduledJob scheduled = jobs.remove(name);
+		if (scheduled == null)
+			return false;
+		scheduled.cancel();
+		return true;
+	}
+
+	/**
+	 * @return The scheduled job names
+	 */
+	public Set<String> getJobNames() {
+		return Collections.unmodifiableSet(jobs.keySet());
+	}
+
+	/**
+	 * @param name
+	 * @return The job statistics, or null if not scheduled
+	 */
+	public JobStatistics getStatistics(String name) {
+		ScheduledJob scheduled = jobs.get(name);
+		return scheduled != null ? scheduled.statistics : null;
+	}
+
+	/**
+	 * Cancels every fire and waits the running jobs to finish
+	 * @param timeout - Maximum time to wait
+	 * @param unit - The timeout unit
+	 * @return True if every job finished in time
+	 * @throws InterruptedException
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		timer.shutdownNow();
+		for (ScheduledJob scheduled : jobs.values())
+			scheduled.cancel();
+		jobs.clear();
+		workers.shutdown();
+		return workers.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * A job and its fire state
+	 */
+	private class ScheduledJob {
+		private final String name;
+		private final Job job;
+		private final Trigger trigger;
+		private final MisfirePolicy policy;
+		private final JobStatistics statistics;
+		private final AtomicBoolean running = new AtomicBoolean();
+		private volatile ScheduledFuture<?> next;
+		private volatile boolean cancelled;
+
+		private ScheduledJob(String name, Job job, Trigger trigger, MisfirePolicy policy) {
+			this.name = name;
+			this.job = job;
+			this.trigger = trigger;
+			this.policy = policy;
+			this.statistics = new JobStatistics(name);
+		}
+
+		private void arm(final long fireTime) {
+			if (cancelled || fireTime < 0)
+				return;
+			try {
+				next = timer.schedule(() -> fire(fireTime), Math.max(fireTime - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+				// Cancelled while arming, cancel() may have read the previous future
+				if (cancelled)
+					next.cancel(false);
+			}
+			catch (RejectedExecutionException e) {
+				// Shut down
+			}
+		}
+
+		private void cancel() {
+			cancelled = true;
+			ScheduledFuture<?> future = next;
+			if (future != null)
+				future.cancel(false);
+		}
+
+		/**
+		 * Runs on the timer thread, arming the following fire before handing the job to the workers
+		 */
+		private void fire(final long fireTime) {
+			if (cancelled)
+				return;
+			long now = System.currentTimeMillis();
+			boolean misfired = now - fireTime > misfireThreshold;
+			long following;
+			try {
+				following = trigger.nextFireTime(fireTime);
+				if (misfired && following >= 0 && following <= now)
+					following = trigger.nextFireTime(now);
+			}
+			catch (RuntimeException e) {
+				log.error("JOB>Couldn't compute the next fire of '" + name + "', unscheduling it: " + e.getMessage(), e);
+				jobs.remove(name, this);
+				return;
+			}
+			arm(following);
+			if (misfired) {
+				statistics.misfired();
+				log.warn("JOB>'" + name + "' misfired by " + (now - fireTime) + "ms" + (policy == MisfirePolicy.SKIP ? ", skipping it" : ""));
+				if (policy == MisfirePolicy.SKIP)
+					return;
+			}
+			if (!running.compareAndSet(false, true)) {
+				statistics.overlapped();
+				log.debug("JOB>'" + name + "' is still running, skipping the fire");
+				return;
+			}
+			try {
+				workers.execute(() -> run(fireTime));
+			}
+			catch (RejectedExecutionException e) {
+				running.set(false);
+				statistics.rejected();
+				log.warn("JOB>No worker available for '" + name + "', skipping the fire");
+			}
+		}
+
+		private void run(long fireTime) {
+			long lag = Math.max(System.currentTimeMillis() - fireTime, 0);
+			long start = System.nanoTime();
+			boolean failed = false;
+			try {
+				job.execute();
+			}
+			catch (RuntimeException e) {
+				failed = true;
+				log.error("JOB>'" + name + "' failed: " + e.getMessage(), e);
+			}
+			finally {
+				statistics.ran(lag, System.nanoTime() - start, failed);
+				running.set(false);
+			}
+		}
+	}
+
+}
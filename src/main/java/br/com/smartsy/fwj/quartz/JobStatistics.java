@@ -0,0 +1,148 @@
+package br.com.smartsy.fwj.quartz;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution counters of a job scheduled on a {@link JobScheduler}
+ * @author Vagner
+ *
+ */
+public class JobStatistics {
+
+	private final String name;
+	private final AtomicLong runs = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong misfires = new AtomicLong();
+	private final AtomicLong overlaps = new AtomicLong();
+	private final AtomicLong rejections = new AtomicLong();
+	private final AtomicLong totalRunTime = new AtomicLong();
+	private final AtomicLong maxRunTime = new AtomicLong();
+	private final AtomicLong totalLag = new AtomicLong();
+	private final AtomicLong maxLag = new AtomicLong();
+	private volatile long lastRunTime;
+	private volatile long lastLag;
+
+	JobStatistics(String name) {
+		this.name = name;
+	}
+
+	void ran(long lag, long runTime, boolean failed) {
+		runs.incrementAndGet();
+		if (failed)
+			failures.incrementAndGet();
+		lastRunTime = runTime;
+		totalRunTime.addAndGet(runTime);
+		maxRunTime.accumulateAndGet(runTime, Math::max);
+		lastLag = lag;
+		totalLag.addAndGet(lag);
+		maxLag.accumulateAndGet(lag, Math::max);
+	}
+
+	void misfired() {
+		misfires.incrementAndGet();
+	}
+
+	void overlapped() {
+		overlaps.incrementAndGet();
+	}
+
+	void rejected() {
+		rejections.incrementAndGet();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getRuns() {
+		return runs.get();
+	}
+
+	/**
+	 * @return Number of runs that threw an exception
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return Number of fires later than the misfire threshold
+	 */
+	public long getMisfires() {
+		return misfires.get();
+	}
+
+	/**
+	 * @return Number of fires skipped because the previous run was still executing
+	 */
+	public long getOverlaps() {
+		return overlaps.get();
+	}
+
+	/**
+	 * @return Number of fires skipped because the worker queue was full
+	 */
+	public long getRejections() {
+		return rejections.get();
+	}
+
+	/**
+	 * @param unit
+	 * @return Duration of the last run
+	 */
+	public long getLastRunTime(TimeUnit unit) {
+		return unit.convert(lastRunTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit
+	 * @return Average duration of the runs
+	 */
+	public long getAverageRunTime(TimeUnit unit) {
+		long runs = getRuns();
+		return runs == 0 ? 0 : unit.convert(totalRunTime.get() / runs, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit
+	 * @return Longest run
+	 */
+	public long getMaxRunTime(TimeUnit unit) {
+		return unit.convert(maxRunTime.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit
+	 * @return Delay between the scheduled fire time and the start of the last run
+	 */
+	public long getLastLag(TimeUnit unit) {
+		return unit.convert(lastLag, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param unit
+	 * @return Average delay between the scheduled fire times and the start of the runs
+	 */
+	public long getAverageLag(TimeUnit unit) {
+		long runs = getRuns();
+		return runs == 0 ? 0 : unit.convert(totalLag.get() / runs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param unit
+	 * @return Longest delay between a scheduled fire time and the start of its run
+	 */
+	public long getMaxLag(TimeUnit unit) {
+		return unit.convert(maxLag.get(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return name + ": runs=" + getRuns() + ", failures=" + getFailures() + ", misfires=" + getMisfires() + ", overlaps=" + getOverlaps()
+				+ ", rejections=" + getRejections() + ", avgRunTime=" + getAverageRunTime(TimeUnit.MILLISECONDS) + "ms, maxRunTime="
+				+ getMaxRunTime(TimeUnit.MILLISECONDS) + "ms, avgLag=" + getAverageLag(TimeUnit.MILLISECONDS) + "ms, maxLag="
+				+ getMaxLag(TimeUnit.MILLISECONDS) + "ms";
+	}
+
+}
@@ -0,0 +1,21 @@
+package br.com.smartsy.fwj.quartz;
+
+/**
+ * What to do when a job couldn't fire on time(e.g: busy scheduler, suspended JVM)
+ * <p>In both cases the runs missed meanwhile are not fired
+ * @author Vagner
+ *
+ */
+public enum MisfirePolicy {
+
+	/**
+	 * Runs the late fire at once
+	 */
+	FIRE_NOW,
+
+	/**
+	 * Skips the late fire, waiting the next one
+	 */
+	SKIP
+
+}
@@ -0,0 +1,24 @@
+package br.com.smartsy.fwj.quartz;
+
+/**
+ * Computes when a scheduled {@link Job} must run
+ * @author Vagner
+ *
+ */
+public interface Trigger {
+
+	/**
+	 * @param now - Current time, in epoch milliseconds
+	 * @return The first fire time, in epoch milliseconds, or a negative value to never fire
+	 */
+	public default long firstFireTime(long now) {
+		return nextFireTime(now);
+	}
+
+	/**
+	 * @param previous - The previous fire time, in epoch milliseconds
+	 * @return The next fire time after the previous one, in epoch milliseconds, or a negative value to stop firing
+	 */
+	public long nextFireTime(long previous);
+
+}
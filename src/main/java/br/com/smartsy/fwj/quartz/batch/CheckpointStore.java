@@ -0,0 +1,35 @@
+package br.com.smartsy.fwj.quartz.batch;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Keeps the committed chunks of a {@link PartitionedBatch}, so a failed or interrupted run restarts from them
+ * @author Vagner
+ *
+ */
+public interface CheckpointStore {
+
+	/**
+	 * @param batch - The batch key
+	 * @return The first id of each committed chunk
+	 * @throws IOException
+	 */
+	public Set<Long> getCompleted(String batch) throws IOException;
+
+	/**
+	 * Registers a committed chunk
+	 * @param batch - The batch key
+	 * @param chunk - The first id of the chunk
+	 * @throws IOException
+	 */
+	public void complete(String batch, long chunk) throws IOException;
+
+	/**
+	 * Removes the checkpoints of a finished batch
+	 * @param batch - The batch key
+	 * @throws IOException
+	 */
+	public void clear(String batch) throws IOException;
+
+}
@@ -0,0 +1,69 @@
+package br.com.smartsy.fwj.quartz.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the checkpoints on disk, one file per batch with a line per committed chunk
+ * <p>Each checkpoint is forced to disk before the next chunk is reported, so restarts survive a JVM crash
+ * @author Vagner
+ *
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+	private final File directory;
+
+	/**
+	 * @param directory - Where the checkpoint files are kept, created if needed
+	 * @throws IOException - If the directory couldn't be created
+	 */
+	public FileCheckpointStore(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Couldn't create the checkpoint directory '" + directory + "'");
+		this.directory = directory;
+	}
+
+	@Override
+	public synchronized Set<Long> getCompleted(String batch) throws IOException {
+		Set<Long> completed = new HashSet<>();
+		File file = file(batch);
+		if (!file.exists())
+			return completed;
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				try {
+					completed.add(Long.valueOf(line.trim()));
+				}
+				catch (NumberFormatException e) {
+					// Torn last line, its chunk is processed again
+				}
+			}
+		}
+		return completed;
+	}
+
+	@Override
+	public synchronized void complete(String batch, long chunk) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file(batch), true)) {
+			out.write((chunk + "\n").getBytes(StandardCharsets.UTF_8));
+			out.getFD().sync();
+		}
+	}
+
+	@Override
+	public synchronized void clear(String batch) throws IOException {
+		Files.deleteIfExists(file(batch).toPath());
+	}
+
+	private File file(String batch) {
+		return new File(directory, batch.replaceAll("[^\\w.-]", "_") + ".checkpoint");
+	}
+
+}
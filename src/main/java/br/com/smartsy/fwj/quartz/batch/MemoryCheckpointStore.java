@@ -0,0 +1,34 @@
+package br.com.smartsy.fwj.quartz.batch;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the checkpoints in memory, so runs are restarted only while the JVM is up
+ * @author Vagner
+ *
+ */
+public class MemoryCheckpointStore implements CheckpointStore {
+
+	private final ConcurrentMap<String, Set<Long>> completed = new ConcurrentHashMap<>();
+
+	@Override
+	public Set<Long> getCompleted(String batch) {
+		Set<Long> chunks = completed.get(batch);
+		return chunks != null ? new HashSet<>(chunks) : Collections.<Long> emptySet();
+	}
+
+	@Override
+	public void complete(String batch, long chunk) {
+		completed.computeIfAbsent(batch, key -> ConcurrentHashMap.newKeySet()).add(chunk);
+	}
+
+	@Override
+	public void clear(String batch) {
+		completed.remove(batch);
+	}
+
+}
@@ -0,0 +1,208 @@
+package br.com.smartsy.fwj.quartz.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import br.com.smartsy.fwj.exception.RepositoryException;
+import br.com.smartsy.fwj.mvc.repository.AbstractRepository;
+import br.com.smartsy.fwj.persistence.BatchReport;
+import br.com.smartsy.fwj.persistence.ChunkProcessor;
+import br.com.smartsy.fwj.quartz.Job;
+import br.com.smartsy.fwj.util.NamedThreadFactory;
+
+/**
+ * Processes every entity of a repository in parallel chunks
+ * <p>The id range of the entity is split in chunks of {@link #getChunkSize()} ids, processed by a fixed pool of
+ * {@link #getParallelism()} workers. Each chunk runs on its own entity-manager and transaction, see
+ * {@link AbstractRepository#processRange(long, long, ChunkProcessor)}, and is checkpointed once committed.
+ * Chunks are aligned to multiples of the chunk size, not to the lowest id, so their boundaries don't move when rows
+ * are inserted or deleted. A failed or interrupted run processes only the missing chunks when run again, as long as
+ * the chunk size is the same.
+ * <p>Empty chunks are skipped: after each chunk the next existing id is looked up, and the batch moves to its chunk.
+ * Sparse ids cost one indexed lookup per chunk with entities, not one transaction per empty chunk
+ * @author Vagner
+ *
+ * @param <T>
+ *            - The entity type
+ */
+public class PartitionedBatch<T> implements Job {
+
+	private static final Logger log = Logger.getLogger(PartitionedBatch.class);
+
+	/**
+	 * Default number of ids per chunk
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	private final String name;
+	private final AbstractRepository<T> repository;
+	private final ChunkProcessor<T> processor;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private CheckpointStore checkpoints = new MemoryCheckpointStore();
+
+	/**
+	 * @param name - Identifies the batch checkpoints
+	 * @param repository - The entity repository
+	 * @param processor - Processes each chunk inside its transaction
+	 */
+	public PartitionedBatch(String name, AbstractRepository<T> repository, ChunkProcessor<T> processor) {
+		this.name = name;
+		this.repository = repository;
+		this.processor = processor;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("The chunk size must be greater than zero");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @return Number of chunks processed at the same time, defaults to the available processors
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be greater than zero");
+		this.parallelism = parallelism;
+	}
+
+	public CheckpointStore getCheckpoints() {
+		return checkpoints;
+	}
+
+	/**
+	 * Sets where the committed chunks are kept, in memory by default
+	 * @param checkpoints
+	 */
+	public void setCheckpoints(CheckpointStore checkpoints) {
+		this.checkpoints = checkpoints;
+	}
+
+	/**
+	 * Runs the batch, see {@link #run()}
+	 * @throws IllegalStateException - If a chunk failed
+	 */
+	@Override
+	public void execute() {
+		try {
+			run();
+		}
+		catch (RepositoryException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Processes the chunks not committed yet, waiting all of them
+	 * <p>The checkpoints are cleared once every chunk is committed
+	 * @return Report of the chunks processed on this run
+	 * @throws RepositoryException - If a chunk failed, the other ones are still processed and checkpointed
+	 */
+	public BatchReport run() throws RepositoryException {
+		final String key = name + "." + chunkSize;
+		final BatchReport report = new BatchReport(chunkSize);
+		long[] range = repository.getIdRange();
+		if (range == null) {
+			clear(key);
+			return report;
+		}
+		Set<Long> completed;
+		try {
+			completed = checkpoints.getCompleted(key);
+		}
+		catch (IOException e) {
+			throw new RepositoryException("Couldn't read the checkpoints of the batch '" + name + "': " + e.getMessage(), e);
+		}
+		ExecutorService workers = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("batch-" + name));
+		// Chunks are submitted as the workers free up, instead of queued all at once
+		final Semaphore inFlight = new Semaphore(parallelism * 2);
+		final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+		try {
+			long from = Math.floorDiv(range[0], chunkSize) * chunkSize;
+			while (true) {
+				final long first = from;
+				final long last = from > Long.MAX_VALUE - chunkSize ? Long.MAX_VALUE : from + chunkSize - 1;
+				if (!completed.contains(first)) {
+					inFlight.acquire();
+					try {
+						workers.execute(() -> {
+							try {
+								long begin = System.nanoTime();
+								int processed = repository.processRange(first, last, processor);
+								checkpoints.complete(key, first);
+								synchronized (report) {
+									report.addChunk(processed, System.nanoTime() - begin);
+								}
+							}
+							catch (Exception e) {
+								failures.add("[" + first + ", " + last + "]: " + e.getMessage());
+							}
+							finally {
+								inFlight.release();
+							}
+						});
+					}
+					catch (RuntimeException e) {
+						inFlight.release();
+						throw e;
+					}
+				}
+				if (last >= range[1])
+					break;
+				Long next = repository.getNextId(last);
+				if (next == null || next > range[1])
+					break;
+				from = Math.floorDiv(next, chunkSize) * chunkSize;
+			}
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			if (!failures.isEmpty())
+				throw new RepositoryException(failures.size() + " chunk(s) of the batch '" + name + "' failed, the committed ones were checkpointed: "
+						+ failures);
+		}
+		catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new RepositoryException("The batch '" + name + "' was interrupted, the committed chunks were checkpointed", e);
+		}
+		finally {
+			workers.shutdown();
+		}
+		clear(key);
+		log.info("Batch '" + name + "' of '" + repository.getEntityName() + "': " + report + ", " + completed.size()
+				+ " chunks already committed before");
+		return report;
+	}
+
+	private void clear(String key) throws RepositoryException {
+		try {
+			checkpoints.clear(key);
+		}
+		catch (IOException e) {
+			throw new RepositoryException("Couldn't clear the checkpoints of the batch '" + name + "': " + e.getMessage(), e);
+		}
+	}
+
+}
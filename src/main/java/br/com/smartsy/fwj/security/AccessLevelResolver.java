@@ -3,6 +3,8 @@ package br.com.smartsy.fwj.security;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import br.com.smartsys.fwj.annotation.Level;
 import br.com.smartsys.fwj.annotation.LevelOverride;
@@ -10,11 +12,40 @@ import br.com.smartsys.fwj.annotation.MethodLevel;
 
 /**
  * Utility made for accessLevel resolving
+ * <p>Resolved levels are memoized per class, method and (owner, method) endpoint, since annotations
+ * don't change at runtime. Endpoints can be resolved on startup with {@link #preload(Class...)}
  * @author Vagner
  *
  */
 public class AccessLevelResolver {
 	
+	private static final ClassValue<Integer> classLevels = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			return computeClassLevel(type);
+		}
+	};
+	
+	/**
+	 * Method levels per declaring class, so nothing keeps a redeployed class loader alive
+	 */
+	private static final ClassValue<ConcurrentMap<Method, Integer>> methodLevels = new ClassValue<ConcurrentMap<Method, Integer>>() {
+		@Override
+		protected ConcurrentMap<Method, Integer> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
+	/**
+	 * Access table per owner class and method
+	 */
+	private static final ClassValue<ConcurrentMap<Method, Integer>> endpointLevels = new ClassValue<ConcurrentMap<Method, Integer>>() {
+		@Override
+		protected ConcurrentMap<Method, Integer> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
 	/**
 	 * Resolve the class accessLevel
 	 * Iterates over all super classes interfaces
@@ -22,6 +53,10 @@ public class AccessLevelResolver {
 	 * @return Access Level
 	 */
 	public static int resolve(Class<?> clazz){
+		return clazz != null ? classLevels.get(clazz) : AccessLevel.NONE;
+	}
+	
+	private static int computeClassLevel(Class<?> clazz){
 		Class<?> current = clazz != null ? clazz : Object.class;
 		Level level = null;
 		while(level == null && !(current.equals(Object.class))){
@@ -42,6 +77,10 @@ public class AccessLevelResolver {
 	public static int resolve(Method method){
 		if(method == null)
 			return getLevel(null);
+		return methodLevels.get(method.getDeclaringClass()).computeIfAbsent(method, AccessLevelResolver::computeMethodLevel);
+	}
+	
+	private static int computeMethodLevel(Method method){
 		Level level = getAnnotation(method, Level.class);
 		Class<?> clazz = method.getDeclaringClass();
 		if(!clazz.isInterface())
@@ -74,6 +113,23 @@ public class AccessLevelResolver {
 	 * @return Access Level
 	 */
 	public static int resolve(Class<?> owner, Method method){
+		if(owner == null || method == null)
+			return resolve(method);
+		return endpointLevels.get(owner).computeIfAbsent(method, m -> computeEndpointLevel(owner, m));
+	}
+	
+	/**
+	 * Resolves the access table of the owner classes ahead of the first requests
+	 * @param owners - The endpoint classes(e.g: REST resources or SOAP implementors)
+	 */
+	public static void preload(Class<?>... owners){
+		for(Class<?> owner : owners)
+			for(Method method : owner.getMethods())
+				if(!method.getDeclaringClass().equals(Object.class))
+					resolve(owner, method);
+	}
+	
+	private static int computeEndpointLevel(Class<?> owner, Method method){
 		LevelOverride override = lookForAnnotation(owner, LevelOverride.class);
 		if(override != null){
 			String methodName = method.getName();
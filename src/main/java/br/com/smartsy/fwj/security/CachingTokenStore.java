@@ -0,0 +1,176 @@
+package br.com.smartsy.fwj.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import br.com.smartsy.fwj.cache.CacheStatistics;
+import br.com.smartsy.fwj.cache.LruCache;
+import br.com.smartsy.fwj.exception.RepositoryException;
+import br.com.smartsy.fwj.util.StringUtil;
+
+/**
+ * In-memory cache in front of a {@link TokenStore}
+ * <p>Valid tokens are kept for a time to live, invalid ones for a shorter time(negative cache), so repeated
+ * requests with the same token usually don't reach the store. Concurrent lookups of the same token query the store once.
+ * Revoked tokens are rejected immediately by this instance; other instances(e.g: other cluster nodes) only notice
+ * it when their entries expire
+ * @author Vagner
+ *
+ * @param <T>
+ *            - The token owner type
+ */
+public class CachingTokenStore<T> implements TokenStore<T> {
+
+	private static final Logger log = Logger.getLogger(CachingTokenStore.class);
+
+	public static final int DEFAULT_MAX_SIZE = 10000;
+	public static final long DEFAULT_TTL = 5;
+	public static final long DEFAULT_NEGATIVE_TTL = 30;
+
+	private final TokenStore<T> store;
+	private final LruCache<String, T> valid;
+	private final LruCache<String, Boolean> invalid;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong negativeHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Cache with the default settings: {@value #DEFAULT_MAX_SIZE} tokens, valid ones for {@value #DEFAULT_TTL} minutes
+	 * and invalid ones for {@value #DEFAULT_NEGATIVE_TTL} seconds
+	 * @param store - The cached store
+	 */
+	public CachingTokenStore(TokenStore<T> store) {
+		this(store, DEFAULT_MAX_SIZE, TimeUnit.MINUTES.toSeconds(DEFAULT_TTL), DEFAULT_NEGATIVE_TTL, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param store - The cached store
+	 * @param maxSize - Maximum number of valid tokens, and of invalid ones
+	 * @param ttl - Time to live of the valid tokens
+	 * @param negativeTtl - Time to live of the invalid tokens
+	 * @param unit - The time to live unit
+	 */
+	public CachingTokenStore(TokenStore<T> store, int maxSize, long ttl, long negativeTtl, TimeUnit unit) {
+		if (store == null)
+			throw new IllegalArgumentException("The token store cannot be null");
+		this.store = store;
+		this.valid = new LruCache<String, T>(maxSize, ttl, unit);
+		this.invalid = new LruCache<String, Boolean>(maxSize, negativeTtl, unit);
+	}
+
+	@Override
+	public T find(String token) throws RepositoryException {
+		if (!StringUtil.hasText(token))
+			return null;
+		if (invalid.get(token) != null) {
+			negativeHits.incrementAndGet();
+			return null;
+		}
+		final boolean[] loaded = new boolean[1];
+		T owner;
+		try {
+			owner = valid.get(token, key -> {
+				loaded[0] = true;
+				return store.find(key);
+			});
+		}
+		catch (RepositoryException | RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new RepositoryException("Couldn't find the token: " + e.getMessage(), e);
+		}
+		if (!loaded[0] && owner != null) {
+			hits.incrementAndGet();
+			return owner;
+		}
+		misses.incrementAndGet();
+		if (owner == null)
+			invalid.put(token, Boolean.TRUE);
+		return owner;
+	}
+
+	/**
+	 * Revokes the token on the store, rejecting it from now on
+	 * <p>The revoked token is kept as invalid without expiring, until it's evicted by size or invalidated; from
+	 * then on the store, where the revocation was persisted, rejects it
+	 */
+	@Override
+	public void revoke(String token) throws RepositoryException {
+		if (!StringUtil.hasText(token))
+			return;
+		valid.invalidate(token);
+		invalid.put(token, Boolean.TRUE, 0, TimeUnit.NANOSECONDS);
+		store.revoke(token);
+		log.debug("Token revoked");
+	}
+
+	/**
+	 * Removes the token from cache, so the next lookup reaches the store
+	 * @param token
+	 */
+	public void invalidate(String token) {
+		valid.invalidate(token);
+		invalid.invalidate(token);
+	}
+
+	/**
+	 * Removes every token from cache
+	 */
+	public void invalidateAll() {
+		valid.invalidateAll();
+		invalid.invalidateAll();
+	}
+
+	/**
+	 * @return Number of lookups answered by a cached valid token
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of lookups answered by a cached invalid token
+	 */
+	public long getNegativeHits() {
+		return negativeHits.get();
+	}
+
+	/**
+	 * @return Number of lookups that reached the store
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Lookups answered from cache over all lookups, from 0 to 1
+	 */
+	public double getHitRate() {
+		long cached = getHits() + getNegativeHits();
+		long requests = cached + getMisses();
+		return requests == 0 ? 0 : (double) cached / requests;
+	}
+
+	/**
+	 * @return Statistics of the valid tokens cache
+	 */
+	public CacheStatistics getStatistics() {
+		return valid.getStatistics();
+	}
+
+	/**
+	 * @return Statistics of the invalid tokens cache
+	 */
+	public CacheStatistics getNegativeStatistics() {
+		return invalid.getStatistics();
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + getHits() + ", negativeHits=" + getNegativeHits() + ", misses=" + getMisses();
+	}
+
+}
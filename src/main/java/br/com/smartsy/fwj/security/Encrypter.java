@@ -2,22 +2,32 @@ package br.com.smartsy.fwj.security;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
+import br.com.smartsy.fwj.util.HexUtil;
+
 /**
  * Class responsible data encryption
+ * <p>Thread-safe, each thread reuses its own digest instance. Shared instances are available through
+ * {@link #getInstance(Algorithm)}
+ * <p>For passwords prefer {@link PasswordHasher}, which is salted and iterated
  * @author Vagner
  * 
  */
 public final class Encrypter 
 {
-	private MessageDigest digest;
-	private Algorithm type;
 	private static final Algorithm defaultType = Algorithm.MD5;
+	private static final Map<Algorithm, Encrypter> instances = new EnumMap<>(Algorithm.class);
 	
 	private static Logger log = Logger.getLogger(Encrypter.class.getName());
 	
+	private final Algorithm type;
+	private final ThreadLocal<MessageDigest> digest;
+	private final int length;
+	
 	/**
 	 * Initialize the encryption system
 	 * @param type - {@link Algorithm} to be used(e.g: MD5, SHA, ...)
@@ -25,30 +35,60 @@ public final class Encrypter
 	public Encrypter(Algorithm type) throws NoSuchAlgorithmException
 	{
 		log.debug("Initializing the encrypter");
-		setType(type);
+		if(type == null){
+			log.warn("The algorithm cannot be null...setting a default type - "+defaultType.algorithm());
+			type = defaultType;
+		}
+		MessageDigest prototype;
 		try
 		{
-			digest = MessageDigest.getInstance(type.algorithm());
+			prototype = MessageDigest.getInstance(type.algorithm());
 		}
 		catch(NoSuchAlgorithmException e)
 		{
 			log.warn("The "+type.algorithm()+" algorithm is not available on current system...setting a default type - "+defaultType.algorithm(), e);
-			digest = MessageDigest.getInstance(defaultType.algorithm());
+			type = defaultType;
+			prototype = MessageDigest.getInstance(defaultType.algorithm());
 		}
+		this.type = type;
+		this.length = prototype.getDigestLength();
+		final String algorithm = type.algorithm();
+		this.digest = ThreadLocal.withInitial(() -> {
+			try {
+				return MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("The " + algorithm + " algorithm is no longer available", e);
+			}
+		});
+		log.debug("Established '"+type.algorithm().toUpperCase()+"' for the encryption");
 	}
 	
 	/**
-	 * Defines the algorithm type
+	 * Gets the shared encrypter of the algorithm
 	 * @param type - {@link Algorithm} to be used(e.g: MD5, SHA, ...)
+	 * @return Encrypter
+	 * @throws NoSuchAlgorithmException
 	 */
-	private void setType(Algorithm type) 
+	public static Encrypter getInstance(Algorithm type) throws NoSuchAlgorithmException
 	{
-		if(type == null){
-			log.warn("The algorithm cannot be null...setting a default type - "+defaultType.algorithm());
+		if(type == null)
 			type = defaultType;
+		synchronized (instances) {
+			Encrypter encrypter = instances.get(type);
+			if(encrypter == null){
+				encrypter = new Encrypter(type);
+				instances.put(type, encrypter);
+			}
+			return encrypter;
 		}
-		this.type = type;
-		log.debug("Established '"+type.algorithm().toUpperCase()+"' for the encryption");
+	}
+	
+	/**
+	 * Gets the algorithm in use, the default one if the requested was not available
+	 * @return Algorithm
+	 */
+	public Algorithm getType() {
+		return type;
 	}
 
 	/**
@@ -57,19 +97,22 @@ public final class Encrypter
 	 * @return Encrypted value
 	 */
 	public String encrypt(String value){
-		log.debug("Initializing the encryption, using '"+type.algorithm()+"' as algorithm");
-		if(digest == null){
-			log.warn("The encryption digest method has not been initialized. Using the default pattern.");
-			setType(defaultType);
-		}
-		digest.update(value.getBytes());
-		byte info[] = digest.digest();
-        StringBuffer sb = new StringBuffer();
-        for (int i = 0; i < info.length; i++) 
-        	sb.append(Integer.toString((info[i] & 0xff) + 0x100, 16).substring(1));
-        String encrypted = sb.toString();
-        log.debug("The value has been encrypted");
-        return encrypted;
+		if(log.isDebugEnabled())
+			log.debug("Initializing the encryption, using '"+type.algorithm()+"' as algorithm");
+		MessageDigest digest = this.digest.get();
+		digest.reset();
+		String encrypted = HexUtil.encode(digest.digest(value.getBytes()));
+		log.debug("The value has been encrypted");
+		return encrypted;
+	}
+	
+	/**
+	 * Check if the value looks like an output of this encrypter
+	 * @param value
+	 * @return True if its a lowercase hexadecimal of the digest length
+	 */
+	public boolean isEncrypted(String value){
+		return HexUtil.isHex(value, length * 2);
 	}
 	
-}
\ No newline at end of file
+}
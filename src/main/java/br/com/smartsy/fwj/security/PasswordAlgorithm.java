@@ -0,0 +1,47 @@
+package br.com.smartsy.fwj.security;
+
+/**
+ * ENUM containing salted and iterated algorithms for hashing passwords
+ * WARNING: The algorithm you choose, must be installed on the machine so it can work.
+ * @author Vagner
+ * @see PasswordHasher
+ */
+public enum PasswordAlgorithm {
+	PBKDF2_SHA1("PBKDF2WithHmacSHA1", "pbkdf2-sha1"),
+	PBKDF2_SHA256("PBKDF2WithHmacSHA256", "pbkdf2-sha256"),
+	PBKDF2_SHA512("PBKDF2WithHmacSHA512", "pbkdf2-sha512");
+
+	private String algorithm;
+	private String identifier;
+
+	/**
+	 * @return The JCA algorithm name
+	 */
+	public String algorithm() {
+		return this.algorithm;
+	}
+
+	/**
+	 * @return The prefix identifying the algorithm on the stored hashes
+	 */
+	public String identifier() {
+		return this.identifier;
+	}
+
+	/**
+	 * Resolves the algorithm of a stored hash prefix
+	 * @param identifier
+	 * @return PasswordAlgorithm, or null if unknown
+	 */
+	public static PasswordAlgorithm fromIdentifier(String identifier) {
+		for (PasswordAlgorithm algorithm : values())
+			if (algorithm.identifier.equals(identifier))
+				return algorithm;
+		return null;
+	}
+
+	private PasswordAlgorithm(String algorithm, String identifier) {
+		this.algorithm = algorithm;
+		this.identifier = identifier;
+	}
+}
@@ -0,0 +1,135 @@
+package br.com.smartsy.fwj.security;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Salted and iterated password hashing(PBKDF2)
+ * <p>Hashes are stored as "identifier$iterations$salt$hash", salt and hash in base64, so the parameters
+ * can be raised later without invalidating the existing hashes. Thread-safe
+ * @author Vagner
+ *
+ */
+public final class PasswordHasher {
+
+	private static final Logger log = Logger.getLogger(PasswordHasher.class);
+
+	public static final PasswordAlgorithm DEFAULT_ALGORITHM = PasswordAlgorithm.PBKDF2_SHA256;
+	public static final int DEFAULT_ITERATIONS = 65536;
+	public static final int DEFAULT_SALT_LENGTH = 16;
+	public static final int DEFAULT_KEY_LENGTH = 256;
+
+	private static final String SEPARATOR = "$";
+	private static final SecureRandom random = new SecureRandom();
+
+	private final PasswordAlgorithm algorithm;
+	private final int iterations;
+	private final int saltLength;
+	private final int keyLength;
+
+	/**
+	 * Hasher with the default parameters
+	 */
+	public PasswordHasher() {
+		this(DEFAULT_ALGORITHM, DEFAULT_ITERATIONS, DEFAULT_SALT_LENGTH, DEFAULT_KEY_LENGTH);
+	}
+
+	/**
+	 * @param algorithm - The PBKDF2 variant
+	 * @param iterations - Number of iterations, the higher the slower to brute force
+	 * @param saltLength - Salt length in bytes
+	 * @param keyLength - Hash length in bits
+	 */
+	public PasswordHasher(PasswordAlgorithm algorithm, int iterations, int saltLength, int keyLength) {
+		if (algorithm == null)
+			throw new IllegalArgumentException("The algorithm cannot be null");
+		if (iterations < 1 || saltLength < 1 || keyLength < 8)
+			throw new IllegalArgumentException("Invalid parameters: iterations=" + iterations + ", saltLength=" + saltLength + ", keyLength=" + keyLength);
+		this.algorithm = algorithm;
+		this.iterations = iterations;
+		this.saltLength = saltLength;
+		this.keyLength = keyLength;
+	}
+
+	/**
+	 * Hashes the password with a new random salt
+	 * @param password
+	 * @return The hash to be stored
+	 * @throws GeneralSecurityException - If the algorithm is not available
+	 */
+	public String hash(char[] password) throws GeneralSecurityException {
+		byte[] salt = new byte[saltLength];
+		random.nextBytes(salt);
+		byte[] hash = derive(algorithm, password, salt, iterations, keyLength);
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		return algorithm.identifier() + SEPARATOR + iterations + SEPARATOR + encoder.encodeToString(salt) + SEPARATOR
+				+ encoder.encodeToString(hash);
+	}
+
+	/**
+	 * Check the password against a stored hash, using the parameters it was created with
+	 * @param password
+	 * @param stored - Hash created by {@link #hash(char[])}
+	 * @return True if the password matches
+	 * @throws GeneralSecurityException - If the algorithm is not available
+	 */
+	public boolean verify(char[] password, String stored) throws GeneralSecurityException {
+		String[] parts = stored != null ? stored.split("\\" + SEPARATOR) : new String[0];
+		if (parts.length != 4) {
+			log.warn("Invalid password hash format");
+			return false;
+		}
+		PasswordAlgorithm algorithm = PasswordAlgorithm.fromIdentifier(parts[0]);
+		if (algorithm == null) {
+			log.warn("Unknown password hash algorithm '" + parts[0] + "'");
+			return false;
+		}
+		try {
+			Base64.Decoder decoder = Base64.getDecoder();
+			byte[] salt = decoder.decode(parts[2]);
+			byte[] expected = decoder.decode(parts[3]);
+			byte[] actual = derive(algorithm, password, salt, Integer.parseInt(parts[1]), expected.length * 8);
+			return MessageDigest.isEqual(expected, actual);
+		}
+		catch (IllegalArgumentException e) {
+			log.warn("Invalid password hash: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Check if the stored hash was created with weaker parameters than the current ones, so it should be rehashed
+	 * @param stored
+	 * @return True or False
+	 */
+	public boolean needsRehash(String stored) {
+		String[] parts = stored != null ? stored.split("\\" + SEPARATOR) : new String[0];
+		if (parts.length != 4 || !algorithm.identifier().equals(parts[0]))
+			return true;
+		try {
+			return Integer.parseInt(parts[1]) < iterations;
+		}
+		catch (NumberFormatException e) {
+			return true;
+		}
+	}
+
+	private static byte[] derive(PasswordAlgorithm algorithm, char[] password, byte[] salt, int iterations, int keyLength)
+			throws GeneralSecurityException {
+		PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLength);
+		try {
+			return SecretKeyFactory.getInstance(algorithm.algorithm()).generateSecret(spec).getEncoded();
+		}
+		finally {
+			spec.clearPassword();
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+package br.com.smartsy.fwj.security;
+
+import java.util.Collections;
+import java.util.List;
+
+import br.com.smartsy.fwj.exception.EntityNotFoundException;
+import br.com.smartsy.fwj.exception.RepositoryException;
+import br.com.smartsy.fwj.mvc.repository.Repository;
+import br.com.smartsy.fwj.util.StringUtil;
+
+/**
+ * {@link TokenStore} backed by the entity holding the token on a {@link Repository}
+ * <p>The token is looked up with a bound parameter on the token property. Subclasses persist the revocation through
+ * {@link #getRepository()}(e.g: clearing the token property, or deleting the session entity), so a revoked token is
+ * never found again
+ * <p>Usually decorated by a {@link CachingTokenStore}
+ * @author Vagner
+ *
+ * @param <T>
+ *            - The entity holding the token
+ */
+public abstract class RepositoryTokenStore<T> implements TokenStore<T> {
+
+	private final Repository<T> repository;
+	private final String query;
+
+	/**
+	 * @param repository - The repository of the entity holding the token
+	 * @param tokenProperty - The token property name(e.g: "token", "session.token")
+	 */
+	public RepositoryTokenStore(Repository<T> repository, String tokenProperty) {
+		if (repository == null || !StringUtil.hasText(tokenProperty))
+			throw new IllegalArgumentException("The repository and token property are required");
+		this.repository = repository;
+		this.query = "from " + repository.getEntityName() + " e where e." + tokenProperty + " = :token";
+	}
+
+	@Override
+	public T find(String token) throws RepositoryException {
+		if (!StringUtil.hasText(token))
+			return null;
+		try {
+			List<T> owners = repository.hqlQuery(query, Collections.singletonMap("token", token), 0, 1);
+			return owners.get(0);
+		}
+		catch (EntityNotFoundException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void revoke(String token) throws RepositoryException {
+		T owner = find(token);
+		if (owner != null)
+			revoke(owner);
+	}
+
+	/**
+	 * Persists the revocation of the owner token, so {@link #find(String)} doesn't find it anymore
+	 * @param owner - The token owner
+	 * @throws RepositoryException
+	 */
+	protected abstract void revoke(T owner) throws RepositoryException;
+
+	/**
+	 * Gets the repository being used
+	 * @return Repository
+	 */
+	protected Repository<T> getRepository() {
+		return repository;
+	}
+
+}
@@ -0,0 +1,77 @@
+package br.com.smartsy.fwj.security;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * A token generator based on random bytes of a shared {@link SecureRandom}, encoded as URL-safe base64 without padding
+ * <p>The tokens can be used on headers, query strings and paths without escaping
+ * @author Vagner
+ *
+ */
+public class SecureTokenGenerator implements TokenGenerator {
+
+	/**
+	 * Default number of random bytes(256 bits)
+	 */
+	public static final int DEFAULT_LENGTH = 32;
+
+	private static final SecureRandom random = new SecureRandom();
+	private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+	private final int length;
+	private final int encodedLength;
+	private final String pattern;
+
+	public SecureTokenGenerator() {
+		this(DEFAULT_LENGTH);
+	}
+
+	/**
+	 * @param length - Number of random bytes of each token
+	 */
+	public SecureTokenGenerator(int length) {
+		if (length < 16)
+			throw new IllegalArgumentException("The token must have at least 16 random bytes");
+		this.length = length;
+		this.encodedLength = (length * 4 + 2) / 3;
+		this.pattern = "[A-Za-z0-9_-]{" + encodedLength + "}";
+	}
+
+	@Override
+	public Token generate() {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return new Token(encoder.encodeToString(bytes), pattern);
+	}
+
+	@Override
+	public Token generate(String value) {
+		if (isValid(value))
+			return new Token(value, pattern);
+		return null;
+	}
+
+	@Override
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Check if the value matches the token pattern, without regex or allocations
+	 * @param value
+	 * @return True or False
+	 */
+	@Override
+	public boolean isValid(CharSequence value) {
+		if (value == null || value.length() != encodedLength)
+			return false;
+		for (int i = 0; i < encodedLength; i++) {
+			char c = value.charAt(i);
+			if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_'))
+				return false;
+		}
+		return true;
+	}
+
+}
@@ -9,6 +9,9 @@ import javax.persistence.Transient;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+import br.com.smartsy.fwj.util.PatternRegistry;
 
 /**
  * A token representation - Used for unique values.
@@ -25,6 +28,11 @@ public class Token implements Serializable {
 	private static final long serialVersionUID = 6767128112648618397L;
 
 	private String value;
+	
+	/**
+	 * Set by the generator on the server, never bound from requests
+	 */
+	@XmlTransient
 	private String pattern;
 
 	public Token() {
@@ -56,11 +64,25 @@ public class Token implements Serializable {
 	
 	/**
 	 * Validate if the token is valid, considering its pattern
+	 * <p>The pattern is compiled once and shared, see {@link PatternRegistry}
 	 * @return
+	 * @see #isValid(TokenGenerator)
 	 */
 	@Transient
 	public boolean isValid(){
-		return getValue().matches(pattern);
+		if(UUIDTokenGenerator.PATTERN.equals(pattern))
+			return UUIDTokenGenerator.isUUID(getValue());
+		return PatternRegistry.matches(pattern, getValue());
+	}
+	
+	/**
+	 * Validate if the token has the format of the generator tokens
+	 * <p>Meant for tokens received on requests, validated against the server side generator
+	 * @param generator - The generator of the tokens
+	 * @return True or False
+	 */
+	public boolean isValid(TokenGenerator generator){
+		return generator.isValid(getValue());
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package br.com.smartsy.fwj.security;
 
+import br.com.smartsy.fwj.util.PatternRegistry;
 
 /**
  * Interface that defines a token generator
@@ -26,5 +27,15 @@ public interface TokenGenerator {
 	 * @return
 	 */
 	public String getPattern();
+	
+	/**
+	 * Check if the value has the format of the generated tokens
+	 * <p>Matches the {@link #getPattern()} by default, compiled once(see {@link PatternRegistry})
+	 * @param value
+	 * @return True or False
+	 */
+	public default boolean isValid(CharSequence value) {
+		return value != null && PatternRegistry.matches(getPattern(), value);
+	}
 
 }
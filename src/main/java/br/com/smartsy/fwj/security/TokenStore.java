@@ -0,0 +1,30 @@
+package br.com.smartsy.fwj.security;
+
+import br.com.smartsy.fwj.exception.RepositoryException;
+
+/**
+ * Store of the issued access tokens
+ * <p>Resolves a token into its owner(e.g: the user or session entity), used by the token interceptors to authenticate requests
+ * @author Vagner
+ *
+ * @param <T>
+ *            - The token owner type
+ */
+public interface TokenStore<T> {
+
+	/**
+	 * Finds the owner of the token
+	 * @param token - The access token
+	 * @return The owner, or null if the token is unknown or no longer valid
+	 * @throws RepositoryException - If the store couldn't be queried
+	 */
+	public T find(String token) throws RepositoryException;
+
+	/**
+	 * Revokes the token, so it can't be used anymore
+	 * @param token - The access token
+	 * @throws RepositoryException - If the store couldn't be updated
+	 */
+	public void revoke(String token) throws RepositoryException;
+
+}
@@ -10,6 +10,10 @@ import java.util.UUID;
  */
 public class UUIDTokenGenerator implements TokenGenerator {
 	
+	public static final String PATTERN = "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}";
+	
+	private static final int LENGTH = 36;
+	
 	@Override
 	public Token generate() {
 		return new Token(UUID.randomUUID().toString(),getPattern());
@@ -17,14 +21,38 @@ public class UUIDTokenGenerator implements TokenGenerator {
 	
 	@Override
 	public Token generate(String value){
-		Token newToken = new Token(value, getPattern());
-		if(newToken.isValid())
-			return newToken;
+		if(isUUID(value))
+			return new Token(value, getPattern());
 		return null;
 	}
 	
 	@Override
 	public String getPattern() {
-		return "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}";
+		return PATTERN;
+	}
+	
+	@Override
+	public boolean isValid(CharSequence value) {
+		return isUUID(value);
+	}
+	
+	/**
+	 * Check if the value matches the token pattern, without regex or allocations
+	 * @param value
+	 * @return True or False
+	 */
+	public static boolean isUUID(CharSequence value){
+		if(value == null || value.length() != LENGTH)
+			return false;
+		for(int i = 0; i < LENGTH; i++){
+			char c = value.charAt(i);
+			if(i == 8 || i == 13 || i == 18 || i == 23){
+				if(c != '-')
+					return false;
+			}
+			else if(!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f'))
+				return false;
+		}
+		return true;
 	}
 }
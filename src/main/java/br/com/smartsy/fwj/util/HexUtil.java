@@ -0,0 +1,46 @@
+package br.com.smartsy.fwj.util;
+
+/**
+ * Utility class for hexadecimal encoding
+ * @author Vagner
+ *
+ */
+public final class HexUtil {
+
+	private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+	private HexUtil() {
+	}
+
+	/**
+	 * Encodes the bytes as lowercase hexadecimal
+	 * @param bytes
+	 * @return Hexadecimal value, two characters per byte
+	 */
+	public static String encode(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0, j = 0; i < bytes.length; i++) {
+			hex[j++] = DIGITS[(bytes[i] >> 4) & 0x0f];
+			hex[j++] = DIGITS[bytes[i] & 0x0f];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Check if the value is lowercase hexadecimal with the given length
+	 * @param value
+	 * @param length - Expected number of characters
+	 * @return True or False
+	 */
+	public static boolean isHex(CharSequence value, int length) {
+		if (value == null || value.length() != length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f'))
+				return false;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,31 @@
+package br.com.smartsy.fwj.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads named after the component and numbered, e.g: <code>mail-retry-1</code>
+ * <p>Being daemon, the background work of the framework never holds the JVM on shutdown
+ * @author Vagner
+ *
+ */
+public final class NamedThreadFactory implements ThreadFactory {
+
+	private final String prefix;
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * @param name - The threads name, followed by their number
+	 */
+	public NamedThreadFactory(String name) {
+		this.prefix = name + "-";
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+
+}
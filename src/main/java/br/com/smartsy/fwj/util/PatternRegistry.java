@@ -0,0 +1,55 @@
+package br.com.smartsy.fwj.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import br.com.smartsy.fwj.cache.LruCache;
+
+/**
+ * Registry of compiled regular expressions, shared by the whole application
+ * <p>Meant for the patterns defined by the application(e.g: token formats), not for user input. The registry is
+ * bounded, the least recently used patterns are compiled again when needed
+ * @author Vagner
+ *
+ */
+public final class PatternRegistry {
+
+	/**
+	 * Maximum number of compiled patterns
+	 */
+	public static final int MAX_PATTERNS = 500;
+
+	private static final LruCache<String, Pattern> patterns = new LruCache<String, Pattern>(MAX_PATTERNS, 0, TimeUnit.MINUTES);
+
+	private PatternRegistry() {
+	}
+
+	/**
+	 * Gets the compiled pattern, compiling it on the first call
+	 * @param regex
+	 * @return Pattern
+	 * @throws java.util.regex.PatternSyntaxException - If the regex is invalid
+	 */
+	public static Pattern get(String regex) {
+		try {
+			return patterns.get(regex, Pattern::compile);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Couldn't compile the pattern '" + regex + "': " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Check if the whole value matches the regex
+	 * @param regex
+	 * @param value
+	 * @return True or False
+	 */
+	public static boolean matches(String regex, CharSequence value) {
+		return get(regex).matcher(value).matches();
+	}
+
+}
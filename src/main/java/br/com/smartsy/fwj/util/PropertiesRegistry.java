@@ -0,0 +1,177 @@
+package br.com.smartsy.fwj.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Shared registry of {@link PropertiesResolver}s, loading each resource only once
+ * <p>Resolvers backed by the file system(files, and classpath resources on exploded directories) are watched and
+ * reloaded when their file changes, notifying their {@link PropertiesResolver.ChangeListener}s
+ * @author Vagner
+ *
+ */
+public class PropertiesRegistry {
+
+	private static final Logger log = Logger.getLogger(PropertiesRegistry.class);
+
+	/**
+	 * Time waited after a change before reloading, so the bursts of events of a single save are handled once
+	 */
+	private static final long DEBOUNCE = 100;
+
+	private final ConcurrentMap<String, PropertiesResolver> resolvers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Path, PropertiesResolver> watched = new ConcurrentHashMap<>();
+	private final Set<Path> directories = new HashSet<>();
+	private WatchService watcher;
+
+	private PropertiesRegistry() {
+	}
+
+	private static class InstanceHolder {
+		private static final PropertiesRegistry INSTANCE = new PropertiesRegistry();
+	}
+
+	public static PropertiesRegistry getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Gets the resolver of the classpath resource, loading it on the first call
+	 * @param classpathResource - The properties file name. If its on subfolder, specify it.
+	 * @return PropertiesResolver
+	 */
+	public PropertiesResolver get(String classpathResource) {
+		String name = classpathResource != null && !classpathResource.endsWith(".properties") ? classpathResource + ".properties" : classpathResource;
+		PropertiesResolver resolver = resolvers.get("classpath:" + name);
+		return resolver != null ? resolver : register("classpath:" + name, new PropertiesResolver(classpathResource));
+	}
+
+	/**
+	 * Gets the resolver of the file, loading it on the first call
+	 * @param systemResource - The properties file
+	 * @return PropertiesResolver
+	 */
+	public PropertiesResolver get(File systemResource) {
+		if (systemResource == null)
+			throw new IllegalArgumentException("The resorce must be specified");
+		String key = "file:" + systemResource.getAbsoluteFile().toPath().normalize();
+		PropertiesResolver resolver = resolvers.get(key);
+		return resolver != null ? resolver : register(key, new PropertiesResolver(systemResource));
+	}
+
+	/**
+	 * Keeps the first resolver loaded for the key, watching its file
+	 */
+	private PropertiesResolver register(String key, PropertiesResolver resolver) {
+		PropertiesResolver existent = resolvers.putIfAbsent(key, resolver);
+		return existent != null ? existent : watch(resolver);
+	}
+
+	/**
+	 * Removes every resolver and stops watching their files
+	 */
+	public synchronized void clear() {
+		resolvers.clear();
+		watched.clear();
+		directories.clear();
+		if (watcher != null) {
+			try {
+				watcher.close();
+			}
+			catch (IOException e) {
+				log.debug("Couldn't close the properties watcher: " + e.getMessage());
+			}
+			watcher = null;
+		}
+	}
+
+	/**
+	 * Registers the resolver file on the watcher, started on the first one
+	 */
+	private synchronized PropertiesResolver watch(PropertiesResolver resolver) {
+		File source = resolver.getSource();
+		if (source == null)
+			return resolver;
+		Path file = source.getAbsoluteFile().toPath().normalize();
+		Path directory = file.getParent();
+		try {
+			if (watcher == null) {
+				watcher = FileSystems.getDefault().newWatchService();
+				new NamedThreadFactory("properties-watcher").newThread(new Watcher(watcher)).start();
+			}
+			if (directories.add(directory))
+				directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			watched.put(file, resolver);
+		}
+		catch (IOException e) {
+			log.warn("Couldn't watch the properties '" + file + "', it won't be reloaded: " + e.getMessage());
+		}
+		return resolver;
+	}
+
+	private static void reload(Path file, PropertiesResolver resolver) {
+		try {
+			if (resolver.reload())
+				log.info("Properties '" + file + "' reloaded");
+		}
+		catch (IOException | RuntimeException e) {
+			// e.g: a malformed unicode escape, it must not stop the watcher
+			log.warn("Couldn't reload the properties '" + file + "', keeping the current values: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reloads the resolvers whose files changed, until the watch service is closed
+	 */
+	private class Watcher implements Runnable {
+		private final WatchService service;
+
+		private Watcher(WatchService service) {
+			this.service = service;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					WatchKey key = service.take();
+					Thread.sleep(DEBOUNCE);
+					Path directory = (Path) key.watchable();
+					Set<Path> changed = new HashSet<>();
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							for (Path file : watched.keySet())
+								if (file.getParent().equals(directory))
+									changed.add(file);
+						}
+						else
+							changed.add(directory.resolve((Path) event.context()));
+					}
+					key.reset();
+					for (Path file : changed) {
+						PropertiesResolver resolver = watched.get(file);
+						if (resolver != null)
+							reload(file, resolver);
+					}
+				}
+			}
+			catch (InterruptedException | ClosedWatchServiceException e) {
+				// Stopped
+			}
+		}
+	}
+
+}
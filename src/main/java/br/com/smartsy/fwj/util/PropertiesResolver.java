@@ -3,18 +3,48 @@ package br.com.smartsy.fwj.util;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 import java.text.MessageFormat;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
 
 /**
  * A properties file utility, wich reads a value by its key
+ * <p>Parameterized values are parsed once, see {@link #getProperty(String, String...)}. Resolvers backed by a file
+ * may be reloaded, notifying the {@link ChangeListener}s. Use {@link PropertiesRegistry} to share the resolvers and reload them on changes
  * @author Vagner
  *
  */
 public class PropertiesResolver {
 	
-	private Properties props = new Properties();
+	private static final Logger log = Logger.getLogger(PropertiesResolver.class);
+	
+	/**
+	 * Notified when reloaded values change
+	 */
+	public interface ChangeListener {
+		/**
+		 * @param resolver - The reloaded resolver
+		 * @param keys - The added, changed and removed keys
+		 */
+		void changed(PropertiesResolver resolver, Set<String> keys);
+	}
+	
+	private volatile Properties props = new Properties();
+	private final ConcurrentMap<String, MessageFormat> formats = new ConcurrentHashMap<>();
+	private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+	private String resource;
+	private File source;
 
 	/**
 	 * Prepare the utility
@@ -49,6 +79,10 @@ public class PropertiesResolver {
 			is = getClassloader().getResourceAsStream(resource);
 			props.load(is);
 			is.close();
+			this.resource = resource;
+			URL url = getClassloader().getResource(resource);
+			if(url != null && "file".equals(url.getProtocol()))
+				this.source = new File(url.toURI());
 		}
 		catch(Exception e){
 			FileNotFoundException fnfe = new FileNotFoundException("The file '"+resource+"' does not exist on classpath"); 
@@ -63,6 +97,7 @@ public class PropertiesResolver {
 			is = new FileInputStream(resource);
 			props.load(is);
 			is.close();
+			this.source = resource;
 		}
 		catch(Exception e){
 			FileNotFoundException fnfe = new FileNotFoundException("The file '"+resource+"' does not exist on classpath"); 
@@ -87,6 +122,7 @@ public class PropertiesResolver {
 	/**
 	 * Searches for the property with the specified key and its parameters in this property list. If the key is not found in this property list, 
 	 * the default property list, and its defaults, recursively, are then checked. The method returns blank if the property is not found.
+	 * <p>Each pattern is parsed once and reused
 	 * @param key - The property key
 	 * @param params - The parameters in ascending order.
 	 * @return A String containing the value
@@ -95,9 +131,70 @@ public class PropertiesResolver {
 		String value = getProperty(key);
 		if(value == null) 
 			return "";
-		MessageFormat formatter = new MessageFormat("");
-		formatter.applyPattern(getProperty(key));
-		return formatter.format(params);
+		MessageFormat formatter = formats.computeIfAbsent(value, MessageFormat::new);
+		//MessageFormat is not thread-safe
+		synchronized (formatter) {
+			return formatter.format(params);
+		}
+	}
+	
+	/**
+	 * Reads the file again, notifying the listeners if any value changed
+	 * <p>The previous {@link #getProperties()} instance is kept unchanged
+	 * @return True if any value changed
+	 * @throws IOException - If the file couldn't be read, the current values are kept
+	 */
+	public synchronized boolean reload() throws IOException {
+		Properties loaded = new Properties();
+		if(source != null){
+			try(InputStream is = new FileInputStream(source)){
+				loaded.load(is);
+			}
+		}
+		else if(resource != null){
+			try(InputStream is = getClassloader().getResourceAsStream(resource)){
+				if(is == null)
+					throw new FileNotFoundException("The file '"+resource+"' does not exist on classpath");
+				loaded.load(is);
+			}
+		}
+		else
+			return false;
+		Set<String> changed = new HashSet<>();
+		for(String key : loaded.stringPropertyNames())
+			if(!Objects.equals(loaded.getProperty(key), props.getProperty(key)))
+				changed.add(key);
+		for(String key : props.stringPropertyNames())
+			if(loaded.getProperty(key) == null)
+				changed.add(key);
+		if(changed.isEmpty())
+			return false;
+		props = loaded;
+		formats.clear();
+		for(ChangeListener listener : listeners){
+			try{
+				listener.changed(this, changed);
+			}
+			catch(RuntimeException e){
+				log.error("The listener of the properties '" + (source != null ? source : resource) + "' failed: " + e.getMessage(), e);
+			}
+		}
+		return true;
+	}
+	
+	public void addChangeListener(ChangeListener listener) {
+		listeners.add(listener);
+	}
+	
+	public void removeChangeListener(ChangeListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * @return The file backing the properties, or null if not loaded from the file system
+	 */
+	public File getSource() {
+		return source;
 	}
 	
 	/**
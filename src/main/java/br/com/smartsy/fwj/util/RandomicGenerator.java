@@ -1,51 +1,107 @@
 package br.com.smartsy.fwj.util;
 
-import java.util.Random;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Generator of random secrets(e.g: passwords) with a minimum number of upper case, numeric and special characters
+ * <p>Thread-safe and reusable, each thread draws from its own {@link SecureRandom}.
+ * The required characters are written first and then shuffled into random positions
+ * @author Vagner
+ *
+ */
 public class RandomicGenerator {
-    private static final String ALPHA_CAPS  = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final String ALPHA   = "abcdefghijklmnopqrstuvwxyz";
-    private static final String NUM     = "0123456789";
-    private static final String SPL_CHARS   = "!@#$%^&*_=+-/";
-    
-    public static void main(String[] args) {
-		System.out.println(generatePswd(5, 10, 4, 0, 0));
+
+	private static final char[] ALPHA_CAPS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+	private static final char[] ALPHA = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+	private static final char[] NUM = "0123456789".toCharArray();
+	private static final char[] SPL_CHARS = "!@#$%^&*_=+-/".toCharArray();
+
+	private static final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecureRandom::new);
+
+	private final int minLen;
+	private final int maxLen;
+	private final int noOfCAPSAlpha;
+	private final int noOfDigits;
+	private final int noOfSplChars;
+
+	/**
+	 * @param minLen - Minimum length
+	 * @param maxLen - Maximum length
+	 * @param noOfCAPSAlpha - Number of upper case characters
+	 * @param noOfDigits - Number of numeric characters
+	 * @param noOfSplChars - Number of special characters
+	 */
+	public RandomicGenerator(int minLen, int maxLen, int noOfCAPSAlpha, int noOfDigits, int noOfSplChars) {
+		if (minLen > maxLen)
+			throw new IllegalArgumentException("Min. Length > Max. Length!");
+		if ((noOfCAPSAlpha + noOfDigits + noOfSplChars) > minLen)
+			throw new IllegalArgumentException("Min. Length should be atleast sum of (CAPS, DIGITS, SPL CHARS) Length!");
+		this.minLen = minLen;
+		this.maxLen = maxLen;
+		this.noOfCAPSAlpha = noOfCAPSAlpha;
+		this.noOfDigits = noOfDigits;
+		this.noOfSplChars = noOfSplChars;
+	}
+
+	/**
+	 * Generates a random secret
+	 * @param minLen - Minimum length
+	 * @param maxLen - Maximum length
+	 * @param noOfCAPSAlpha - Number of upper case characters
+	 * @param noOfDigits - Number of numeric characters
+	 * @param noOfSplChars - Number of special characters
+	 * @return The secret
+	 */
+	public static String generatePswd(int minLen, int maxLen, int noOfCAPSAlpha, int noOfDigits, int noOfSplChars) {
+		return new RandomicGenerator(minLen, maxLen, noOfCAPSAlpha, noOfDigits, noOfSplChars).generate();
+	}
+
+	/**
+	 * Generates a random secret
+	 * @return The secret
+	 */
+	public String generate() {
+		return generate(random.get());
 	}
- 
-    public static String generatePswd(int minLen, int maxLen, int noOfCAPSAlpha, int noOfDigits, int noOfSplChars) {
-        if(minLen > maxLen)
-            throw new IllegalArgumentException("Min. Length > Max. Length!");
-        if( (noOfCAPSAlpha + noOfDigits + noOfSplChars) > minLen )
-            throw new IllegalArgumentException
-            ("Min. Length should be atleast sum of (CAPS, DIGITS, SPL CHARS) Length!");
-        Random rnd = new Random();
-        int len = rnd.nextInt(maxLen - minLen + 1) + minLen;
-        char[] pswd = new char[len];
-        int index = 0;
-        for (int i = 0; i < noOfCAPSAlpha; i++) {
-            index = getNextIndex(rnd, len, pswd);
-            pswd[index] = ALPHA_CAPS.charAt(rnd.nextInt(ALPHA_CAPS.length()));
-        }
-        for (int i = 0; i < noOfDigits; i++) {
-            index = getNextIndex(rnd, len, pswd);
-            pswd[index] = NUM.charAt(rnd.nextInt(NUM.length()));
-        }
-        for (int i = 0; i < noOfSplChars; i++) {
-            index = getNextIndex(rnd, len, pswd);
-            pswd[index] = SPL_CHARS.charAt(rnd.nextInt(SPL_CHARS.length()));
-        }
-        for(int i = 0; i < len; i++) {
-            if(pswd[i] == 0) {
-                pswd[i] = ALPHA.charAt(rnd.nextInt(ALPHA.length()));
-            }
-        }
-        return new String(pswd);
-    }
-
-	private static int getNextIndex(Random rnd, int len, char[] pswd) {
-        int index = rnd.nextInt(len);
-        while(pswd[index = rnd.nextInt(len)] != 0);
-        return index;
-    }
-	
-}
\ No newline at end of file
+
+	/**
+	 * Generates many random secrets at once(e.g: for batch imports)
+	 * @param count - Number of secrets
+	 * @return The secrets
+	 */
+	public List<String> generate(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("The count cannot be negative");
+		SecureRandom rnd = random.get();
+		List<String> secrets = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			secrets.add(generate(rnd));
+		return secrets;
+	}
+
+	private String generate(SecureRandom rnd) {
+		int len = rnd.nextInt(maxLen - minLen + 1) + minLen;
+		char[] pswd = new char[len];
+		int index = fill(rnd, pswd, 0, noOfCAPSAlpha, ALPHA_CAPS);
+		index = fill(rnd, pswd, index, noOfDigits, NUM);
+		index = fill(rnd, pswd, index, noOfSplChars, SPL_CHARS);
+		fill(rnd, pswd, index, len - index, ALPHA);
+		//Fisher-Yates shuffle
+		for (int i = len - 1; i > 0; i--) {
+			int j = rnd.nextInt(i + 1);
+			char c = pswd[i];
+			pswd[i] = pswd[j];
+			pswd[j] = c;
+		}
+		return new String(pswd);
+	}
+
+	private static int fill(SecureRandom rnd, char[] pswd, int from, int count, char[] chars) {
+		for (int i = 0; i < count; i++)
+			pswd[from + i] = chars[rnd.nextInt(chars.length)];
+		return from + count;
+	}
+
+}
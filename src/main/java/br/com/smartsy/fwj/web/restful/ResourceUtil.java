@@ -1,6 +1,17 @@
 package br.com.smartsy.fwj.web.restful;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxrs.JAXRSServiceImpl;
+import org.apache.cxf.jaxrs.model.ClassResourceInfo;
+import org.apache.cxf.jaxrs.model.OperationResourceInfo;
+import org.apache.cxf.service.Service;
+
+import br.com.smartsy.fwj.security.AccessLevelResolver;
 
 /**
  * Class with rest resources utilities
@@ -22,4 +33,30 @@ public class ResourceUtil {
 		return modifiable.getLastModifiedDate().after(modifiedSince);
 	}
 	
+	/**
+	 * Resolves the access level of every resource method of the server ahead of the first requests
+	 * <p>Should be called after the server creation, so authorization is a lookup on the memoized table
+	 * @param server - The JAX-RS server
+	 */
+	public static void preloadAccessLevels(Server server){
+		Service service = server.getEndpoint().getService();
+		if(!(service instanceof JAXRSServiceImpl))
+			return;
+		Set<ClassResourceInfo> visited = Collections.newSetFromMap(new IdentityHashMap<ClassResourceInfo, Boolean>());
+		for(ClassResourceInfo root : ((JAXRSServiceImpl) service).getClassResourceInfos())
+			preloadAccessLevels(root.getResourceClass(), root, visited);
+	}
+	
+	/**
+	 * Resolves the resource methods, including the sub-resources, against the root resource class
+	 */
+	private static void preloadAccessLevels(Class<?> owner, ClassResourceInfo resource, Set<ClassResourceInfo> visited){
+		if(!visited.add(resource))
+			return;
+		for(OperationResourceInfo operation : resource.getMethodDispatcher().getOperationResourceInfos())
+			AccessLevelResolver.resolve(owner, operation.getMethodToInvoke());
+		for(ClassResourceInfo subResource : resource.getSubResources())
+			preloadAccessLevels(owner, subResource, visited);
+	}
+	
 }
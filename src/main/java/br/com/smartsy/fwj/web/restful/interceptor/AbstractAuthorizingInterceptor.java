@@ -1,9 +1,6 @@
 package br.com.smartsy.fwj.web.restful.interceptor;
 
-import java.lang.reflect.Method;
-
 import org.apache.cxf.interceptor.Fault;
-import org.apache.cxf.jaxrs.model.ClassResourceInfo;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
@@ -11,7 +8,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
 import br.com.smartsy.fwj.exception.AuthorizationException;
-import br.com.smartsy.fwj.security.AccessLevelResolver;
 
 /**
  * Abstract interceptor made for resource access authorization
@@ -22,9 +18,6 @@ public abstract class AbstractAuthorizingInterceptor extends AbstractPhaseInterc
 	
 	@Autowired
 	private ApplicationContext context;
-	
-	private static final String KEY_RESOURCE_CLASS = "root.resource.class";
-	private static final String KEY_RESOURCE_METHOD = "org.apache.cxf.resource.method";
 
 	public AbstractAuthorizingInterceptor() {
 		super(Phase.PRE_INVOKE);
@@ -33,7 +26,7 @@ public abstract class AbstractAuthorizingInterceptor extends AbstractPhaseInterc
 	@Override
 	public void handleMessage(Message message) throws Fault {
 		try{
-			if(!shouldGrant(message, AccessLevelResolver.resolve(getResourceClass(message), getResourceMethod(message))))
+			if(!shouldGrant(message, ResourceLevelResolver.resolve(message)))
 				throw new AuthorizationException("Permission Denied");
 		}
 		catch(Exception e){
@@ -60,30 +53,4 @@ public abstract class AbstractAuthorizingInterceptor extends AbstractPhaseInterc
 	 * @return True/False
 	 */
 	protected abstract boolean shouldGrant(Message message,int level);
-	
-	/**
-	 * Recover the target resource class
-	 * @param message
-	 * @return Target Resource Class
-	 */
-	private Class<?> getResourceClass(Message message){
-		Class<?> clazz = null;
-		Object value = message.getExchange().get(KEY_RESOURCE_CLASS);
-		if(value != null)
-			if(value instanceof ClassResourceInfo)
-				clazz = ((ClassResourceInfo)value).getResourceClass();
-		return  clazz;
-	}
-	
-	/**
-	 * Recover the target method of the resource class
-	 * @param message
-	 * @return Target Method
-	 */
-	private Method getResourceMethod(Message message){
-		Object method = message.getExchange().getInMessage().getContextualProperty(KEY_RESOURCE_METHOD);
-		if(method != null)
-			return (Method)method;
-		return null;
-	}
 }
\ No newline at end of file
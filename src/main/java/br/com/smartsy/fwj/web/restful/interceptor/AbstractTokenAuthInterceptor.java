@@ -1,21 +1,21 @@
 package br.com.smartsy.fwj.web.restful.interceptor;
 
-import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.cxf.interceptor.Fault;
-import org.apache.cxf.jaxrs.model.ClassResourceInfo;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
 import org.apache.cxf.transport.http.AbstractHTTPDestination;
 
 import br.com.smartsy.fwj.exception.AuthenticationException;
+import br.com.smartsy.fwj.exception.RepositoryException;
 import br.com.smartsy.fwj.security.AccessLevel;
-import br.com.smartsy.fwj.security.AccessLevelResolver;
+import br.com.smartsy.fwj.security.CachingTokenStore;
+import br.com.smartsy.fwj.security.TokenStore;
 import br.com.smartsy.fwj.util.CastUtil;
 import br.com.smartsy.fwj.util.StringUtil;
 
@@ -26,17 +26,25 @@ import br.com.smartsy.fwj.util.StringUtil;
  */
 public abstract class AbstractTokenAuthInterceptor extends AbstractPhaseInterceptor<Message>{
 	
-	private static final String KEY_RESOURCE_CLASS = "root.resource.class";
-	private static final String KEY_RESOURCE_METHOD = "org.apache.cxf.resource.method";
-	
 	protected static final AuthenticationException ERROR_BLANK_TOKEN_HEADER = new AuthenticationException("An access token must be declared on the http header");
 	protected static final AuthenticationException ERROR_BLANK_TOKEN_QUERY = new AuthenticationException("An access token must be declared on the query string");
 	protected static final AuthenticationException ERROR_INVALID_TOKEN = new AuthenticationException("Invalid access token");
 
+	private TokenStore<?> tokenStore;
+
 	public AbstractTokenAuthInterceptor() {
 		super(Phase.PRE_INVOKE);
 	}
 	
+	/**
+	 * Interceptor validating the tokens against the store
+	 * @param tokenStore - Usually a {@link CachingTokenStore}, so authentication doesn't cost I/O on every request
+	 */
+	public AbstractTokenAuthInterceptor(TokenStore<?> tokenStore) {
+		this();
+		setTokenStore(tokenStore);
+	}
+	
 	@Override
 	public void handleMessage(Message message) throws Fault {
 		//In case of free access, should avoid authentication
@@ -57,11 +65,32 @@ public abstract class AbstractTokenAuthInterceptor extends AbstractPhaseIntercep
 	
 	/**
 	 * Validates the token
+	 * <p>By default the token must be found on the {@link TokenStore}
 	 * @param token - Access Token
 	 * @param method - The HTTP Method
 	 * @throws AuthenticationException
 	 */
-	protected abstract void validateToken(String token,String method) throws AuthenticationException;
+	protected void validateToken(String token,String method) throws AuthenticationException {
+		if(tokenStore == null)
+			throw new IllegalStateException("A token store must be set, or the token validation overridden by '" + getClass().getName() + "'");
+		if(!StringUtil.hasText(token))
+			throw ERROR_BLANK_TOKEN_HEADER;
+		try {
+			if(tokenStore.find(token) == null)
+				throw ERROR_INVALID_TOKEN;
+		}
+		catch (RepositoryException e) {
+			throw new AuthenticationException("Couldn't validate the access token: " + e.getMessage());
+		}
+	}
+	
+	public TokenStore<?> getTokenStore() {
+		return tokenStore;
+	}
+
+	public void setTokenStore(TokenStore<?> tokenStore) {
+		this.tokenStore = tokenStore;
+	}
 	
 	/**
 	 * Gets the token header parameter name
@@ -93,33 +122,7 @@ public abstract class AbstractTokenAuthInterceptor extends AbstractPhaseIntercep
 	 * @return True/False
 	 */
 	private boolean isFreeAccess(Message message){
-		return AccessLevelResolver.resolve(getResourceClass(message), getResourceMethod(message)) == AccessLevel.NONE;
-	}
-	
-	/**
-	 * Recover the target resource class
-	 * @param message
-	 * @return Target Resource Class
-	 */
-	private Class<?> getResourceClass(Message message){
-		Class<?> clazz = null;
-		Object value = message.getExchange().get(KEY_RESOURCE_CLASS);
-		if(value != null)
-			if(value instanceof ClassResourceInfo)
-				clazz = ((ClassResourceInfo)value).getResourceClass();
-		return  clazz;
-	}
-	
-	/**
-	 * Recover the target method of the resource class
-	 * @param message
-	 * @return Target Method
-	 */
-	private Method getResourceMethod(Message message){
-		Object method = message.getExchange().getInMessage().getContextualProperty(KEY_RESOURCE_METHOD);
-		if(method != null)
-			return (Method)method;
-		return null;
+		return ResourceLevelResolver.resolve(message) == AccessLevel.NONE;
 	}
 	
 }
\ No newline at end of file
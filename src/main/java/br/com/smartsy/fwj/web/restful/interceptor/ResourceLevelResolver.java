@@ -0,0 +1,63 @@
+package br.com.smartsy.fwj.web.restful.interceptor;
+
+import java.lang.reflect.Method;
+
+import org.apache.cxf.jaxrs.model.ClassResourceInfo;
+import org.apache.cxf.message.Message;
+
+import br.com.smartsy.fwj.security.AccessLevelResolver;
+
+/**
+ * Resolves the access level of the REST resource method being called
+ * <p>Shared by the authentication and authorization interceptors, the level is resolved once per exchange
+ * @author Vagner
+ *
+ */
+final class ResourceLevelResolver {
+
+	private static final String KEY_RESOURCE_CLASS = "root.resource.class";
+	private static final String KEY_RESOURCE_METHOD = "org.apache.cxf.resource.method";
+	private static final String KEY_ACCESS_LEVEL = "br.com.smartsy.fwj.access.level";
+
+	private ResourceLevelResolver() {
+	}
+
+	/**
+	 * Resolves the access level of the target, once per exchange
+	 * @param message
+	 * @return Access Level
+	 */
+	static int resolve(Message message){
+		Object level = message.getExchange().get(KEY_ACCESS_LEVEL);
+		if(level instanceof Integer)
+			return (Integer) level;
+		int resolved = AccessLevelResolver.resolve(getResourceClass(message), getResourceMethod(message));
+		message.getExchange().put(KEY_ACCESS_LEVEL, resolved);
+		return resolved;
+	}
+
+	/**
+	 * Recover the target resource class
+	 * @param message
+	 * @return Target Resource Class
+	 */
+	private static Class<?> getResourceClass(Message message){
+		Object value = message.getExchange().get(KEY_RESOURCE_CLASS);
+		if(value instanceof ClassResourceInfo)
+			return ((ClassResourceInfo)value).getResourceClass();
+		return null;
+	}
+
+	/**
+	 * Recover the target method of the resource class
+	 * @param message
+	 * @return Target Method
+	 */
+	private static Method getResourceMethod(Message message){
+		Object method = message.getExchange().getInMessage().getContextualProperty(KEY_RESOURCE_METHOD);
+		if(method != null)
+			return (Method)method;
+		return null;
+	}
+
+}
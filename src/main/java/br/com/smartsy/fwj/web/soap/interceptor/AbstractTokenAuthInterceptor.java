@@ -1,21 +1,18 @@
 package br.com.smartsy.fwj.web.soap.interceptor;
 
-import java.lang.reflect.Method;
-
-import javax.xml.namespace.QName;
-
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
 import org.apache.cxf.frontend.FaultInfoException;
 import org.apache.cxf.interceptor.Fault;
-import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.Phase;
-import org.apache.cxf.service.model.MessageInfo;
 
+import br.com.smartsy.fwj.exception.RepositoryException;
 import br.com.smartsy.fwj.exception.TokenAuthException;
+import br.com.smartsy.fwj.exception.TokenAuthException.TokenFaultInfo;
 import br.com.smartsy.fwj.security.AccessLevel;
-import br.com.smartsy.fwj.security.AccessLevelResolver;
-import br.com.smartsy.fwj.web.common.Endpoint;
+import br.com.smartsy.fwj.security.CachingTokenStore;
+import br.com.smartsy.fwj.security.TokenStore;
+import br.com.smartsy.fwj.util.StringUtil;
 import br.com.smartsy.fwj.web.soap.SoapHeader;
 import br.com.smartsy.fwj.web.soap.TokenAuthHeader;
 
@@ -29,13 +26,22 @@ public abstract class AbstractTokenAuthInterceptor extends AbstractSoapIntercept
 	protected static final Fault FAULT_BLANK_TOKEN = new Fault(new RuntimeException("An access token must be declared on the soap envelope header"));
 	protected static final Fault FAULT_INVALID_TOKEN = new Fault(new RuntimeException("Invalid access token"));
 	
-	private static final String SERVICE_INFO = "javax.xml.ws.wsdl.interface";
-	private static final String OPERATION_INFO = "org.apache.cxf.service.model.MessageInfo";
-	private final String basePackage;
+	private final SoapOperationResolver resolver;
+	private TokenStore<?> tokenStore;
 	
 	public AbstractTokenAuthInterceptor(String basePackage) {
 		super(Phase.PRE_INVOKE);
-		this.basePackage = basePackage;
+		this.resolver = SoapOperationResolver.getInstance(basePackage);
+	}
+	
+	/**
+	 * Interceptor validating the tokens against the store
+	 * @param basePackage - The package of the webservices implementation classes
+	 * @param tokenStore - Usually a {@link CachingTokenStore}, so authentication doesn't cost I/O on every request
+	 */
+	public AbstractTokenAuthInterceptor(String basePackage, TokenStore<?> tokenStore) {
+		this(basePackage);
+		setTokenStore(tokenStore);
 	}
 	
 	@Override
@@ -54,10 +60,31 @@ public abstract class AbstractTokenAuthInterceptor extends AbstractSoapIntercept
 	
 	/**
 	 * Verify if the token is valid
+	 * <p>By default the token must be found on the {@link TokenStore}
 	 * @param token
 	 * @throws TokenAuthException
 	 */
-	protected abstract void validateToken(String token) throws TokenAuthException;
+	protected void validateToken(String token) throws TokenAuthException {
+		if(tokenStore == null)
+			throw new IllegalStateException("A token store must be set, or the token validation overridden by '" + getClass().getName() + "'");
+		if(!StringUtil.hasText(token))
+			throw new TokenAuthException(new TokenFaultInfo("An access token must be declared on the soap envelope header"));
+		try {
+			if(tokenStore.find(token) == null)
+				throw new TokenAuthException(new TokenFaultInfo("Invalid access token"));
+		}
+		catch (RepositoryException e) {
+			throw new TokenAuthException(new TokenFaultInfo("Couldn't validate the access token: " + e.getMessage()));
+		}
+	}
+	
+	public TokenStore<?> getTokenStore() {
+		return tokenStore;
+	}
+
+	public void setTokenStore(TokenStore<?> tokenStore) {
+		this.tokenStore = tokenStore;
+	}
 	
 	/**
 	 * Verifiy if the destination has free access
@@ -66,44 +93,13 @@ public abstract class AbstractTokenAuthInterceptor extends AbstractSoapIntercept
 	 */
 	private boolean isFreeAccess(SoapMessage message){
 		try{
-			Class<Endpoint> clazz = getServiceClass(message);
-			Method operation = getServiceMethod(message, clazz);
-			return AccessLevelResolver.resolve(clazz, operation) == AccessLevel.NONE;
+			return resolver.resolve(message).getLevel() == AccessLevel.NONE;
 		}
 		catch(ClassNotFoundException e){
 			throw new Fault(new FaultInfoException("Authentication Problems " + e.getMessage()));
 		}
 	}
 	
-	/**
-	 * Recovers the target webservice implementation class
-	 * @param soapMsg
-	 * @return Class
-	 * @throws ClassNotFoundException
-	 */
-	@SuppressWarnings("unchecked")
-	private Class<Endpoint> getServiceClass(SoapMessage soapMsg) throws ClassNotFoundException{
-		Message inMsg = soapMsg.getExchange().getInMessage();
-		QName serviceInfo = (QName) inMsg.get(SERVICE_INFO);
-		return (Class<Endpoint>) Class.forName(basePackage + "." + serviceInfo.getLocalPart());
-	}
-	
-	/**
-	 * Recovers the target webservice method being called
-	 * @param soapMsg
-	 * @param endpointClazz
-	 * @return Method
-	 */
-	private Method getServiceMethod(SoapMessage soapMsg, Class<Endpoint> endpointClazz){
-		Message inMsg = soapMsg.getExchange().getInMessage();
-		MessageInfo operationInfo = (MessageInfo) inMsg.get(OPERATION_INFO);
-		String operation = operationInfo.getOperation().getInputName();
-		for(Method method : endpointClazz.getMethods())
-			if(method.getName().equals(operation))
-				return method;
-		return null;
-	}
-	
 	private String getToken(SoapMessage message) {
 	    SoapHeader header = new SoapHeader(message);
 	    TokenAuthHeader authHeader = header.getTokenAuthHeader();
@@ -0,0 +1,150 @@
+package br.com.smartsy.fwj.web.soap.interceptor;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.model.MessageInfo;
+
+import br.com.smartsy.fwj.cache.LruCache;
+import br.com.smartsy.fwj.security.AccessLevelResolver;
+
+/**
+ * Resolves the implementation class, method and access level of the SOAP operation being called
+ * <p>Shared by the interceptors of the same base package. Services are loaded once and their operations
+ * indexed by name; unknown services are negatively cached, so repeated calls don't reach the class loader
+ * @author Vagner
+ *
+ */
+public final class SoapOperationResolver {
+
+	private static final String SERVICE_INFO = "javax.xml.ws.wsdl.interface";
+	private static final String OPERATION_INFO = "org.apache.cxf.service.model.MessageInfo";
+	private static final String KEY_OPERATION = SoapOperation.class.getName();
+
+	/**
+	 * Maximum number of unknown services remembered
+	 */
+	public static final int MAX_UNKNOWN_SERVICES = 1000;
+
+	private static final ConcurrentMap<String, SoapOperationResolver> instances = new ConcurrentHashMap<>();
+
+	private final String basePackage;
+	private final ConcurrentMap<QName, Map<String, SoapOperation>> services = new ConcurrentHashMap<>();
+	private final LruCache<QName, Boolean> unknownServices = new LruCache<QName, Boolean>(MAX_UNKNOWN_SERVICES, 10, TimeUnit.MINUTES);
+
+	private SoapOperationResolver(String basePackage) {
+		this.basePackage = basePackage;
+	}
+
+	/**
+	 * Gets the resolver of the implementation classes package
+	 * @param basePackage
+	 * @return SoapOperationResolver
+	 */
+	public static SoapOperationResolver getInstance(String basePackage) {
+		return instances.computeIfAbsent(basePackage, SoapOperationResolver::new);
+	}
+
+	/**
+	 * Resolves the operation of the message, once per exchange
+	 * @param message
+	 * @return The operation, with a null method if the service doesn't implement it
+	 * @throws ClassNotFoundException - If the service has no implementation class on the base package
+	 */
+	public SoapOperation resolve(SoapMessage message) throws ClassNotFoundException {
+		Exchange exchange = message.getExchange();
+		Object resolved = exchange.get(KEY_OPERATION);
+		if (resolved instanceof SoapOperation)
+			return (SoapOperation) resolved;
+		Message inMsg = exchange.getInMessage();
+		QName service = (QName) inMsg.get(SERVICE_INFO);
+		MessageInfo operationInfo = (MessageInfo) inMsg.get(OPERATION_INFO);
+		SoapOperation operation = resolve(service, operationInfo.getOperation().getInputName());
+		exchange.put(KEY_OPERATION, operation);
+		return operation;
+	}
+
+	/**
+	 * Resolves the operation of the service
+	 * @param service - The service interface name
+	 * @param operation - The operation name
+	 * @return The operation, with a null method if the service doesn't implement it
+	 * @throws ClassNotFoundException - If the service has no implementation class on the base package
+	 */
+	public SoapOperation resolve(QName service, String operation) throws ClassNotFoundException {
+		Map<String, SoapOperation> operations = services.get(service);
+		if (operations == null)
+			operations = load(service);
+		SoapOperation resolved = operations.get(operation);
+		return resolved != null ? resolved : operations.get(null);
+	}
+
+	private Map<String, SoapOperation> load(QName service) throws ClassNotFoundException {
+		String className = basePackage + "." + service.getLocalPart();
+		if (unknownServices.get(service) != null)
+			throw new ClassNotFoundException(className);
+		Class<?> clazz;
+		try {
+			clazz = Class.forName(className);
+		}
+		catch (ClassNotFoundException e) {
+			unknownServices.put(service, Boolean.TRUE);
+			throw e;
+		}
+		Map<String, SoapOperation> operations = new HashMap<>();
+		//The first method of each name, as the operations are resolved by name only
+		for (Method method : clazz.getMethods())
+			operations.putIfAbsent(method.getName(), new SoapOperation(clazz, method));
+		operations.put(null, new SoapOperation(clazz, null));
+		operations = Collections.unmodifiableMap(operations);
+		Map<String, SoapOperation> existent = services.putIfAbsent(service, operations);
+		return existent != null ? existent : operations;
+	}
+
+	/**
+	 * The resolved operation of a SOAP service
+	 */
+	public static final class SoapOperation {
+		private final Class<?> endpointClass;
+		private final Method method;
+		private final int level;
+
+		private SoapOperation(Class<?> endpointClass, Method method) {
+			this.endpointClass = endpointClass;
+			this.method = method;
+			this.level = AccessLevelResolver.resolve(endpointClass, method);
+		}
+
+		/**
+		 * @return The implementation class
+		 */
+		public Class<?> getEndpointClass() {
+			return endpointClass;
+		}
+
+		/**
+		 * @return The implementation method, or null if not found
+		 */
+		public Method getMethod() {
+			return method;
+		}
+
+		/**
+		 * @return The access level of the operation
+		 */
+		public int getLevel() {
+			return level;
+		}
+	}
+
+}
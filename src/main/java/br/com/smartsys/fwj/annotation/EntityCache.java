@@ -0,0 +1,34 @@
+package br.com.smartsys.fwj.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indicates that lookups by id of the entity may be served from an in-process cache.
+ * <p>Mostly used for reference entities that almost never change
+ * @author Vagner
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface EntityCache {
+
+	/**
+	 * Maximum number of cached entities
+	 */
+	int maxSize() default 1000;
+
+	/**
+	 * Time to live of each cached entity, zero to never expire
+	 */
+	long ttl() default 10;
+
+	/**
+	 * The time to live unit
+	 */
+	TimeUnit unit() default TimeUnit.MINUTES;
+
+}